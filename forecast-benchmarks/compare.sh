@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Runs the benchmarks on two commits and prints the scores side by side.
+#
+# Usage: forecast-benchmarks/compare.sh <base-ref> [<head-ref>] [-- <jmh options>]
+#   e.g. forecast-benchmarks/compare.sh main HEAD -- -f 2 ForecastLookupBenchmark
+#
+# Every ref is built in a temporary git worktree, its results are kept in forecast-benchmarks/results/<sha>.json
+# and reused on the next run. Requires git, maven, java and jq.
+set -euo pipefail
+
+base_ref=${1:?usage: compare.sh <base-ref> [<head-ref>] [-- <jmh options>]}
+shift
+head_ref=HEAD
+if [[ $# -gt 0 && $1 != "--" ]]; then
+  head_ref=$1
+  shift
+fi
+[[ $# -gt 0 && $1 == "--" ]] && shift
+jmh_options=("$@")
+
+root=$(git rev-parse --show-toplevel)
+results="$root/forecast-benchmarks/results"
+mkdir -p "$results"
+
+run() {
+  local sha worktree
+  sha=$(git -C "$root" rev-parse --short "$1")
+  if [[ ! -f "$results/$sha.json" ]]; then
+    worktree=$(mktemp -d)
+    git -C "$root" worktree add --detach "$worktree" "$sha" >/dev/null
+    (cd "$worktree" && mvn -B -q package -DskipTests \
+      && java -jar forecast-benchmarks/target/benchmarks.jar -rf json -rff "$results/$sha.json" "${jmh_options[@]}") >&2
+    git -C "$root" worktree remove --force "$worktree"
+  fi
+  echo "$results/$sha.json"
+}
+
+base=$(run "$base_ref")
+head=$(run "$head_ref")
+
+format() {
+  if command -v column >/dev/null; then column -t -s $'\t'; else cat; fi
+}
+
+{
+printf 'Benchmark\tUnit\t%s\t%s\tChange\n' "$base_ref" "$head_ref"
+jq -r -n --slurpfile base "$base" --slurpfile head "$head" '
+  def rounded: . * 1000 | round / 1000 | tostring;
+  def key: .benchmark + ([.params // {} | to_entries[] | " " + .key + "=" + .value] | join(""));
+  ($base[0] | map({(key): .primaryMetric}) | add) as $before
+  | $head[0][]
+  | key as $key
+  | $before[$key] as $old
+  | [$key, .primaryMetric.scoreUnit,
+     (if $old then $old.score | rounded else "-" end), (.primaryMetric.score | rounded),
+     (if $old then ((.primaryMetric.score / $old.score - 1) * 100 | round | tostring) + "%" else "-" end)]
+  | @tsv' | sort
+} | format
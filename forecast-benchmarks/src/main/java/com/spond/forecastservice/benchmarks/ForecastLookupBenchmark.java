@@ -0,0 +1,91 @@
+package com.spond.forecastservice.benchmarks;
+
+import com.spond.forecastservice.domain.ForecastAggregate;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closest point and event window lookups on a cached timeseries. 88 points is the size of a MET compact forecast,
+ * hourly for the first days and six hourly after that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastLookupBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"88", "500"})
+    private int points;
+
+    private ForecastTimeseries timeseries;
+    private Instant[] starts;
+    private Instant[] ends;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long first = Instant.parse("2024-11-28T20:00:00Z").getEpochSecond();
+        long[] times = new long[points];
+        float[][] columns = new float[ForecastField.values().length][];
+        float[] temperatures = new float[points];
+        float[] windSpeeds = new float[points];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < points; i++) {
+            times[i] = first + (i < 60 ? i * 3600L : 60 * 3600L + (i - 60) * 6 * 3600L);
+            temperatures[i] = (float) random.nextDouble(-20, 20);
+            windSpeeds[i] = (float) random.nextDouble(0, 15);
+        }
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = temperatures;
+        columns[ForecastField.WIND_SPEED.ordinal()] = windSpeeds;
+        timeseries = new ForecastTimeseries(times, columns);
+
+        starts = new Instant[PROBES];
+        ends = new Instant[PROBES];
+        long span = times[points - 1] - first;
+        for (int i = 0; i < PROBES; i++) {
+            long start = first + random.nextLong(span);
+            starts[i] = Instant.ofEpochSecond(start);
+            ends[i] = Instant.ofEpochSecond(start + random.nextLong(1800, 6 * 3600));
+        }
+    }
+
+    @Benchmark
+    public int findClosestIndex() {
+        return timeseries.findClosestIndex(starts[nextProbe()]);
+    }
+
+    @Benchmark
+    public ForecastAggregate aggregateWindow() {
+        int index = nextProbe();
+        int from = timeseries.findFirstIndexFrom(starts[index]);
+        int to = timeseries.findLastIndexUntil(ends[index]);
+        if (from > to) {
+            from = to = timeseries.findClosestIndex(starts[index]);
+        }
+        return timeseries.aggregate(ForecastField.AIR_TEMPERATURE, from, to);
+    }
+
+    private int nextProbe() {
+        return probe = (probe + 1) & (PROBES - 1);
+    }
+}
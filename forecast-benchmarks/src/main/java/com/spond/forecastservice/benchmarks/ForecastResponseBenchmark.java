@@ -0,0 +1,105 @@
+package com.spond.forecastservice.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spond.forecastservice.config.BatchProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.controller.ForecastResponseCache;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.ForecastService;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body of a single forecast response for a hot venue, built and serialized on every request versus served from
+ * {@link ForecastResponseCache}. Events start at random minutes of the same few hours, as they do for a popular venue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastResponseBenchmark {
+
+    private static final int PROBES = 1024;
+
+    private ForecastService forecastService;
+    private ObjectMapper objectMapper;
+    private ForecastResponseCache responseCache;
+    private CachedWeatherData cachedData;
+    private Event[] events;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocationGrid locationGrid = new LocationGrid(new LocationProperties());
+        //Building a response only needs the timeseries
+        forecastService = new ForecastService(null, locationGrid, new BatchProperties(),
+            new ForecastMetrics(new SimpleMeterRegistry()), Runnable::run);
+        objectMapper = new ObjectMapper();
+        responseCache = new ForecastResponseCache(forecastService, locationGrid, objectMapper, new WeatherCacheProperties());
+
+        long first = Instant.parse("2024-11-28T20:00:00Z").getEpochSecond();
+        long[] times = new long[88];
+        float[][] columns = new float[ForecastField.values().length][];
+        float[] temperatures = new float[times.length];
+        float[] windSpeeds = new float[times.length];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < times.length; i++) {
+            times[i] = first + (i < 60 ? i * 3600L : 60 * 3600L + (i - 60) * 6 * 3600L);
+            temperatures[i] = (float) random.nextDouble(-20, 20);
+            windSpeeds[i] = (float) random.nextDouble(0, 15);
+        }
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = temperatures;
+        columns[ForecastField.WIND_SPEED.ordinal()] = windSpeeds;
+        cachedData = CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(Instant.now().plusSeconds(3600))
+            .build();
+
+        events = new Event[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            Instant start = Instant.ofEpochSecond(first + 18 * 3600L + random.nextLong(4 * 3600L));
+            events[i] = Event.builder()
+                .latitude(59.9139)
+                .longitude(10.7522)
+                .startTime(start)
+                .endTime(start.plusSeconds(7200))
+                .build();
+        }
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(forecastService.toForecast(cachedData, events[nextProbe()], false));
+    }
+
+    @Benchmark
+    public byte[] responseCache() {
+        return responseCache.toForecastJson(cachedData, events[nextProbe()], false);
+    }
+
+    private int nextProbe() {
+        return probe = (probe + 1) & (PROBES - 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.spond.forecastservice.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.externalmodel.WeatherData;
+import com.spond.forecastservice.service.external.MetForecastParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a recorded MET compact response, against binding it to the {@link WeatherData} model as the RestTemplate's
+ * Jackson converter used to, and a plain Jackson tree read of the same payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetForecastParserBenchmark {
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+    private ObjectMapper bindingMapper;
+    private MetForecastParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (InputStream in = MetForecastParserBenchmark.class.getResourceAsStream("/compact-forecast.json")) {
+            payload = in.readAllBytes();
+        }
+        objectMapper = new ObjectMapper();
+        //Configured like the mapper of the RestTemplate's converter: java.time support, unknown properties ignored
+        bindingMapper = Jackson2ObjectMapperBuilder.json().build();
+        parser = new MetForecastParser(objectMapper, new MetApiProperties());
+    }
+
+    @Benchmark
+    public ForecastTimeseries parse() throws IOException {
+        return parser.parse(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public WeatherData readValue() throws IOException {
+        return bindingMapper.readValue(new ByteArrayInputStream(payload), WeatherData.class);
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return objectMapper.readTree(new ByteArrayInputStream(payload));
+    }
+}
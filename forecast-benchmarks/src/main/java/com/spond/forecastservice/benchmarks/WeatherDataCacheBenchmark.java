@@ -0,0 +1,97 @@
+package com.spond.forecastservice.benchmarks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.spond.forecastservice.config.CacheConfig;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended reads and writes on the weather cache as configured by {@link CacheConfig}, including the stats
+ * recording and the location index eviction listener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherDataCacheBenchmark {
+
+    private static final int KEYS = 1 << 14;
+
+    private Cache<Long, CachedWeatherData> cache;
+    private long[] keys;
+    private CachedWeatherData value;
+
+    @State(Scope.Thread)
+    public static class Probe {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return random.nextInt(KEYS);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocationProperties locationProperties = new LocationProperties();
+        LocationGrid locationGrid = new LocationGrid(locationProperties);
+        cache = new CacheConfig().weatherDataCache(new CachedLocationIndex(locationGrid, locationProperties),
+            new WeatherCacheProperties(), new SimpleMeterRegistry());
+        value = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().plusSeconds(3600))
+            .build();
+
+        //Keys of locations spread over southern Norway, like the events the service typically sees
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = locationGrid.toKey(random.nextDouble(58, 64), random.nextDouble(5, 12));
+            cache.put(keys[i], value);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CachedWeatherData get(Probe probe) {
+        return cache.getIfPresent(keys[probe.next()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public CachedWeatherData readWriteGet(Probe probe) {
+        return cache.getIfPresent(keys[probe.next()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWritePut(Probe probe) {
+        cache.put(keys[probe.next()], value);
+    }
+}
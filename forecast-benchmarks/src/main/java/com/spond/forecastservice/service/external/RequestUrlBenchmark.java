@@ -0,0 +1,71 @@
+package com.spond.forecastservice.service.external;
+
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache key and MET request url construction. Lives in the service package to reach the package private
+ * {@link MetApiService#buildRequestUrl(String, LocationGrid, long)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestUrlBenchmark {
+
+    private static final int PROBES = 1024;
+
+    private LocationGrid locationGrid;
+    private String baseUrl;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocationProperties locationProperties = new LocationProperties();
+        locationGrid = new LocationGrid(locationProperties);
+        baseUrl = new MetApiProperties().getBaseUrl();
+        SplittableRandom random = new SplittableRandom(42);
+        latitudes = new double[PROBES];
+        longitudes = new double[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            latitudes[i] = random.nextDouble(-90, 90);
+            longitudes[i] = random.nextDouble(-180, 180);
+        }
+    }
+
+    @Benchmark
+    public long toKey() {
+        int index = nextProbe();
+        return locationGrid.toKey(latitudes[index], longitudes[index]);
+    }
+
+    @Benchmark
+    public String buildRequestUrl() {
+        int index = nextProbe();
+        long key = locationGrid.toKey(latitudes[index], longitudes[index]);
+        return MetApiService.buildRequestUrl(baseUrl, locationGrid, key);
+    }
+
+    private int nextProbe() {
+        return probe = (probe + 1) & (PROBES - 1);
+    }
+}
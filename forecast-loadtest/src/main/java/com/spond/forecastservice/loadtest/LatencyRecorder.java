@@ -0,0 +1,64 @@
+package com.spond.forecastservice.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and response statuses recorded by one worker, merged into a {@link Result} once every worker is done.
+ * Every latency is kept, so percentiles are exact.
+ */
+public final class LatencyRecorder {
+
+    private long[] latencies = new long[1 << 14];
+    private int count;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    /**
+     * @param status http status code, or {@code -1} if the request failed without a response
+     */
+    public void record(final int status, final long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    public static Result merge(final List<LatencyRecorder> recorders) {
+        int total = recorders.stream().mapToInt(recorder -> recorder.count).sum();
+        long[] merged = new long[total];
+        Map<Integer, Long> statuses = new TreeMap<>();
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+            recorder.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        }
+        Arrays.sort(merged);
+        return new Result(merged, statuses);
+    }
+
+    /**
+     * @param sortedLatencies every recorded latency in nanos, ascending
+     */
+    public record Result(long[] sortedLatencies, Map<Integer, Long> statuses) {
+
+        public int count() {
+            return sortedLatencies.length;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the latency in millis at the percentile, nearest rank
+         */
+        public double percentileMillis(final double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, Math.min(rank, sortedLatencies.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.spond.forecastservice.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed loop driver, {@code concurrency} workers each send their next request as soon as the previous one answered.
+ * Requests of the warmup are sent but not recorded.
+ */
+public class LoadDriver {
+
+    private final String target;
+    private final Workload workload;
+    private final int concurrency;
+    private final Duration requestTimeout;
+    private final HttpClient client;
+
+    public LoadDriver(final String target, final Workload workload, final int concurrency, final Duration requestTimeout) {
+        this.target = target;
+        this.workload = workload;
+        this.concurrency = concurrency;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    }
+
+    public LatencyRecorder.Result run(final Duration warmup, final Duration duration) throws Exception {
+        double[] cumulativeWeights = workload.cumulativeWeights();
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<LatencyRecorder>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                Workload.Generator generator = workload.generator(cumulativeWeights, 42L + i);
+                futures.add(workers.submit(() -> drive(generator, warmupEnd, end)));
+            }
+            List<LatencyRecorder> recorders = new ArrayList<>();
+            for (Future<LatencyRecorder> future : futures) {
+                recorders.add(future.get());
+            }
+            return LatencyRecorder.merge(recorders);
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private LatencyRecorder drive(Workload.Generator generator, long warmupEnd, long end) throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        while (System.nanoTime() < end) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + generator.next(Instant.now())))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            }
+            catch (IOException e) {
+                status = -1;
+            }
+            if (start >= warmupEnd) {
+                recorder.record(status, System.nanoTime() - start);
+            }
+        }
+        return recorder;
+    }
+}
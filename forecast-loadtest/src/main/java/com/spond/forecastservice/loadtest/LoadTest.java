@@ -0,0 +1,152 @@
+package com.spond.forecastservice.loadtest;
+
+import com.spond.forecastservice.SpondForecastServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link Workload} against the forecast api while MET is played by a {@link StubMetServer}, and prints the
+ * throughput, latency percentiles and upstream calls. The service is started in process against the stub, unless
+ * {@code --target} points at one that is already running with {@code forecast.met.base-url} set to the stub. Every
+ * {@code --forecast.*}, {@code --spring.*}, {@code --management.*}, {@code --server.*} and {@code --logging.*} argument
+ * is passed on to the in process service.
+ * <p>
+ * Options, with their defaults:
+ * <pre>
+ * --target=                   base url of a running service, the service is started in process if empty
+ * --duration=60s              measured run time
+ * --warmup=10s                run time before measuring, to fill the cache and warm up the JIT
+ * --concurrency=32            number of concurrent requests
+ * --request-timeout=15s       time allowed for one forecast request
+ * --hot-locations=200         number of hot locations
+ * --hot-share=0.9             share of the requests that go to a hot location, the rest go to unique coordinates
+ * --zipf=1.0                  skew of the hot locations
+ * --met-port=0                port of the stub, 0 for any free port
+ * --met-latency=50ms          fixed stub latency
+ * --met-latency-jitter=50ms   random extra stub latency, up to this value
+ * --met-expires=5m            Expires of the stub responses, from the time of the call
+ * --met-update-interval=30m   how often the stub publishes a new forecast version, older versions get a 200 again
+ * --met-error-rate=0          share of stub calls answered with a 503
+ * --brownout-start=0s         when the brownout starts, from the end of the warmup
+ * --brownout-duration=0s      brownout length, 0 for none
+ * --brownout-latency=3s       stub latency during the brownout
+ * --brownout-error-rate=0.5   share of stub calls answered with a 503 during the brownout
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final List<String> SERVICE_PROPERTY_PREFIXES = List.of("forecast.", "spring.", "management.",
+        "server.", "logging.");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> serviceProperties = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            (SERVICE_PROPERTY_PREFIXES.stream().anyMatch(name::startsWith) ? serviceProperties : options).put(name, value);
+        }
+
+        Duration warmup = duration(options, "warmup", "10s");
+        Duration duration = duration(options, "duration", "60s");
+        StubMetServer.Options stubOptions = new StubMetServer.Options(
+            Integer.parseInt(options.getOrDefault("met-port", "0")),
+            duration(options, "met-latency", "50ms"),
+            duration(options, "met-latency-jitter", "50ms"),
+            duration(options, "met-expires", "5m"),
+            duration(options, "met-update-interval", "30m"),
+            Double.parseDouble(options.getOrDefault("met-error-rate", "0")),
+            duration(options, "brownout-start", "0s"),
+            duration(options, "brownout-duration", "0s"),
+            duration(options, "brownout-latency", "3s"),
+            Double.parseDouble(options.getOrDefault("brownout-error-rate", "0.5")));
+        Workload workload = new Workload(
+            Integer.parseInt(options.getOrDefault("hot-locations", "200")),
+            Double.parseDouble(options.getOrDefault("hot-share", "0.9")),
+            Double.parseDouble(options.getOrDefault("zipf", "1.0")));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+
+        try (StubMetServer stub = new StubMetServer(stubOptions)) {
+            stub.start();
+            ConfigurableApplicationContext service = null;
+            String target = options.getOrDefault("target", "");
+            if (target.isEmpty()) {
+                service = startService(stub.baseUrl(), serviceProperties);
+                target = "http://127.0.0.1:" + ((WebServerApplicationContext) service).getWebServer().getPort();
+            }
+            else {
+                System.out.println("Stub MET api at " + stub.baseUrl() + ", the service under test must use it as forecast.met.base-url");
+            }
+
+            try {
+                System.out.printf(Locale.ROOT, "Driving %s with %d workers for %s after a %s warmup%n",
+                    target, concurrency, duration, warmup);
+                CompletableFuture.delayedExecutor(warmup.toMillis(), TimeUnit.MILLISECONDS).execute(stub::startMeasuring);
+                LatencyRecorder.Result result = new LoadDriver(target, workload, concurrency,
+                    duration(options, "request-timeout", "15s")).run(warmup, duration);
+                print(result, duration, stub);
+            }
+            finally {
+                if (service != null) {
+                    service.close();
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(String metBaseUrl, Map<String, String> serviceProperties) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("forecast.met.base-url", metBaseUrl);
+        //Every run starts cold, a snapshot of a previous run would hide the stampede
+        properties.put("forecast.cache.snapshot.enabled", "false");
+        //Every request comes from this one client, admission control would measure the limits instead of the service
+        properties.put("forecast.rate-limit.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(serviceProperties);
+        //Passed as command line arguments, default properties would lose against application.yaml
+        String[] args = properties.entrySet().stream()
+            .map(property -> "--" + property.getKey() + "=" + property.getValue())
+            .toArray(String[]::new);
+        return new SpringApplicationBuilder(SpondForecastServiceApplication.class).run(args);
+    }
+
+    private static void print(LatencyRecorder.Result result, Duration duration, StubMetServer stub) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Requests        %d (%.1f/s)%n", result.count(), result.count() / seconds);
+        System.out.println("Statuses        " + result.statuses() + (result.statuses().containsKey(-1) ? " (-1 is no response)" : ""));
+        System.out.printf(Locale.ROOT, "Latency ms      p50 %.2f | p90 %.2f | p99 %.2f | p99.9 %.2f | max %.2f%n",
+            result.percentileMillis(50), result.percentileMillis(90), result.percentileMillis(99),
+            result.percentileMillis(99.9), result.percentileMillis(100));
+
+        Map<Integer, Long> upstream = stub.callsByStatus();
+        long upstreamCalls = upstream.values().stream().mapToLong(Long::longValue).sum();
+        int locations = stub.distinctLocations();
+        System.out.printf(Locale.ROOT, "Upstream calls  %d %s, %.1f per 1000 requests%n", upstreamCalls, upstream,
+            result.count() == 0 ? 0 : upstreamCalls * 1000.0 / result.count());
+        System.out.printf(Locale.ROOT, "Upstream keys   %d distinct locations, %.2f calls per location%n", locations,
+            locations == 0 ? 0 : (double) upstreamCalls / locations);
+    }
+
+    private static Duration duration(Map<String, String> options, String name, String defaultValue) {
+        return DurationStyle.detectAndParse(options.getOrDefault(name, defaultValue));
+    }
+}
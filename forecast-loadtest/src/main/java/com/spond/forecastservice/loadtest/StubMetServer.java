@@ -0,0 +1,214 @@
+package com.spond.forecastservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand in for the MET locationforecast api. Serves a recorded compact payload with its timeseries moved to the
+ * current hour, a new version of the forecast every {@code updateInterval}, and answers conditional requests for the
+ * current version with a 304. Latency and error rate can be raised for a brownout window to reproduce upstream
+ * trouble.
+ */
+public class StubMetServer implements AutoCloseable {
+
+    private static final Pattern TIME = Pattern.compile("\"time\":\"([^\"]+)\"");
+
+    public record Options(int port, Duration latency, Duration latencyJitter, Duration expires,
+                          Duration updateInterval, double errorRate, Duration brownoutStart,
+                          Duration brownoutDuration, Duration brownoutLatency, double brownoutErrorRate) {
+    }
+
+    private record Version(long number, String lastModified, Instant lastModifiedAt, byte[] body) {
+    }
+
+    private final Options options;
+    private final String recordedPayload;
+    private final Instant recordedStart;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicReference<Version> version = new AtomicReference<>();
+    private final Map<Integer, LongAdder> callsByStatus = new ConcurrentHashMap<>();
+    private final Set<String> locations = ConcurrentHashMap.newKeySet();
+    private volatile Instant startedAt;
+    private volatile Instant measuringSince;
+
+    public StubMetServer(final Options options) throws IOException {
+        this.options = options;
+        try (InputStream in = StubMetServer.class.getResourceAsStream("/compact-forecast.json")) {
+            this.recordedPayload = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Matcher first = TIME.matcher(recordedPayload);
+        if (!first.find()) {
+            throw new IllegalStateException("Recorded payload has no timeseries");
+        }
+        this.recordedStart = Instant.parse(first.group(1));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port()), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/weatherapi/locationforecast/2.0/compact";
+    }
+
+    /**
+     * @return number of calls per response status, in status order
+     */
+    public Map<Integer, Long> callsByStatus() {
+        Map<Integer, Long> calls = new TreeMap<>();
+        callsByStatus.forEach((status, count) -> calls.put(status, count.sum()));
+        return calls;
+    }
+
+    public int distinctLocations() {
+        return locations.size();
+    }
+
+    /**
+     * Forgets the calls so far, to leave the warmup out of the report, and starts the brownout clock.
+     */
+    public void startMeasuring() {
+        callsByStatus.clear();
+        locations.clear();
+        measuringSince = Instant.now();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            //The JDK server drops the connection after a response without body unless the request was read to the end
+            exchange.getRequestBody().readAllBytes();
+            locations.add(exchange.getRequestURI().getRawQuery());
+            Instant now = Instant.now();
+            boolean brownout = isBrownout(now);
+            sleep(brownout ? options.brownoutLatency() : options.latency());
+
+            double errorRate = brownout ? options.brownoutErrorRate() : options.errorRate();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 503, null);
+                return;
+            }
+
+            Version current = currentVersion(now);
+            exchange.getResponseHeaders().add("Expires", httpDate(now.plus(options.expires())));
+            exchange.getResponseHeaders().add("Last-Modified", current.lastModified());
+            if (isNotModified(exchange.getRequestHeaders().getFirst("If-Modified-Since"), current)) {
+                respond(exchange, 304, null);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            respond(exchange, 200, current.body());
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        callsByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private boolean isBrownout(Instant now) {
+        Instant since = measuringSince;
+        if (since == null || options.brownoutDuration().isZero()) {
+            return false;
+        }
+        Instant from = since.plus(options.brownoutStart());
+        return !now.isBefore(from) && now.isBefore(from.plus(options.brownoutDuration()));
+    }
+
+    private static boolean isNotModified(String ifModifiedSince, Version current) {
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !current.lastModifiedAt().isAfter(since);
+        }
+        catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Every version has its timeseries moved so it starts at the hour the version was published
+    private Version currentVersion(Instant now) {
+        long interval = Math.max(1, options.updateInterval().toMillis());
+        long number = (now.toEpochMilli() - startedAt.toEpochMilli()) / interval;
+        Version current = version.get();
+        if (current != null && current.number() >= number) {
+            return current;
+        }
+        Instant publishedAt = Instant.ofEpochMilli(startedAt.toEpochMilli() + number * interval)
+            .truncatedTo(ChronoUnit.SECONDS);
+        Duration shift = Duration.between(recordedStart, publishedAt.truncatedTo(ChronoUnit.HOURS));
+        Matcher matcher = TIME.matcher(recordedPayload);
+        StringBuilder body = new StringBuilder(recordedPayload.length());
+        while (matcher.find()) {
+            Instant shifted = Instant.parse(matcher.group(1)).plus(shift);
+            matcher.appendReplacement(body, "\"time\":\"" + DateTimeFormatter.ISO_INSTANT.format(shifted) + "\"");
+        }
+        matcher.appendTail(body);
+        Version next = new Version(number, httpDate(publishedAt), publishedAt,
+            body.toString().getBytes(StandardCharsets.UTF_8));
+        //A racing request may have published the same version, either copy is identical
+        version.accumulateAndGet(next, (a, b) -> a == null || b.number() > a.number() ? b : a);
+        return version.get();
+    }
+
+    private void sleep(Duration latency) {
+        long jitter = options.latencyJitter().toMillis();
+        long millis = latency.toMillis() + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted while delaying the response", e));
+        }
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+}
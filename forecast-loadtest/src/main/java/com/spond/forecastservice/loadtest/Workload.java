@@ -0,0 +1,78 @@
+package com.spond.forecastservice.loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Request mix of the driver. A {@code hotShare} of the requests go to a fixed set of hot locations picked with a Zipf
+ * skew, the rest go to unique coordinates spread over Norway, a long tail that never hits the cache.
+ *
+ * @param hotLocations number of hot locations
+ * @param hotShare     share of the requests that go to a hot location, between 0 and 1
+ * @param zipfExponent skew of the hot locations, 0 picks them uniformly and higher values favour the first ones
+ */
+public record Workload(int hotLocations, double hotShare, double zipfExponent) {
+
+    /**
+     * Cumulative Zipf weights of the hot locations, shared by every {@link Generator}.
+     */
+    public double[] cumulativeWeights() {
+        double[] cumulative = new double[hotLocations];
+        double sum = 0;
+        for (int i = 0; i < hotLocations; i++) {
+            sum += 1 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < hotLocations; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Not thread safe, every worker creates its own.
+     */
+    public Generator generator(final double[] cumulativeWeights, final long seed) {
+        return new Generator(this, cumulativeWeights, new SplittableRandom(seed));
+    }
+
+    public static final class Generator {
+
+        private final Workload workload;
+        private final double[] cumulativeWeights;
+        private final SplittableRandom random;
+
+        private Generator(Workload workload, double[] cumulativeWeights, SplittableRandom random) {
+            this.workload = workload;
+            this.cumulativeWeights = cumulativeWeights;
+            this.random = random;
+        }
+
+        /**
+         * @return the path and query of the next forecast request, for an event starting in the next two days
+         */
+        public String next(final Instant now) {
+            double latitude;
+            double longitude;
+            if (workload.hotLocations() > 0 && random.nextDouble() < workload.hotShare()) {
+                int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+                int location = Math.min(index < 0 ? -index - 1 : index, cumulativeWeights.length - 1);
+                //Hot locations lie on a 0.05 degree grid around Oslo, far enough apart not to be reused as nearby
+                latitude = 59.0 + (location % 40) * 0.05;
+                longitude = 10.0 + (location / 40) * 0.05;
+            }
+            else {
+                latitude = 58.0 + random.nextDouble() * 13.0;
+                longitude = 5.0 + random.nextDouble() * 25.0;
+            }
+            Instant startTime = now.truncatedTo(ChronoUnit.HOURS).plus(Duration.ofHours(1 + random.nextInt(48)));
+            Instant endTime = startTime.plus(Duration.ofHours(2));
+            return String.format(Locale.ROOT, "/api/event/forecast?latitude=%.4f&longitude=%.4f&startTime=%s&endTime=%s",
+                latitude, longitude, startTime, endTime);
+        }
+    }
+}
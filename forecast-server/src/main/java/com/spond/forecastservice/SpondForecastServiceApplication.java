@@ -1,11 +1,18 @@
 package com.spond.forecastservice;
 
+import com.spond.forecastservice.config.ForecastRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
+@ConfigurationPropertiesScan
+@EnableScheduling
+@ImportRuntimeHints(ForecastRuntimeHints.class)
 public class SpondForecastServiceApplication {
 
 	public static void main(String[] args) {
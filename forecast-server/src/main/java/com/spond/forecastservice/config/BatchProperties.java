@@ -0,0 +1,24 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.batch")
+public class BatchProperties {
+
+    /**
+     * Maximum number of events accepted in a single batch request.
+     */
+    @Min(1)
+    private int maxSize = 500;
+
+    /**
+     * Maximum number of distinct locations of a single batch fetched concurrently.
+     */
+    @Min(1)
+    private int parallelism = 8;
+}
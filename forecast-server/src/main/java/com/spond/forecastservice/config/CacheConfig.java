@@ -2,17 +2,101 @@ package com.spond.forecastservice.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
 
 @Configuration
 public class CacheConfig {
 
+    //CachedWeatherData, its Instant and Last-Modified string and the cache's own node, on top of the timeseries
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
     @Bean("weatherDataCache")
-    public Cache<String, CachedWeatherData> weatherDataCache() {
-        return Caffeine.newBuilder().expireAfterWrite(2, TimeUnit.HOURS).build();
+    public Cache<Long, CachedWeatherData> weatherDataCache(CachedLocationIndex cachedLocationIndex,
+                                                           WeatherCacheProperties weatherCacheProperties,
+                                                           MeterRegistry meterRegistry) {
+        Caffeine<Long, CachedWeatherData> builder = Caffeine.newBuilder()
+            .maximumWeight(weatherCacheProperties.getMaximumWeight().toBytes())
+            .<Long, CachedWeatherData>weigher((key, value) -> weigh(value))
+            .expireAfter(new WeatherDataExpiry(retention(weatherCacheProperties)))
+            //Eviction listeners run atomically with the removal, so the index never drops a key that was just re-added
+            .evictionListener((key, value, cause) -> cachedLocationIndex.remove(key));
+        if (weatherCacheProperties.isRecordStats()) {
+            builder.recordStats();
+        }
+        Cache<Long, CachedWeatherData> cache = builder.build();
+        //Size, hit/miss, eviction and load statistics, exposed as cache.* meters tagged cache=weatherDataCache
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "weatherDataCache");
+    }
+
+    /**
+     * Copies of the entries of locations owned by peers, see {@link ClusterProperties}. They expire with the owner's
+     * entry and are not part of the location index, so nearby lookups stick to locations this replica fetched itself.
+     */
+    @Bean("peerCopyCache")
+    public Cache<Long, CachedWeatherData> peerCopyCache(ClusterProperties clusterProperties,
+                                                        WeatherCacheProperties weatherCacheProperties,
+                                                        MeterRegistry meterRegistry) {
+        Caffeine<Long, CachedWeatherData> builder = Caffeine.newBuilder()
+            .maximumWeight(clusterProperties.getCopyMaximumWeight().toBytes())
+            .<Long, CachedWeatherData>weigher((key, value) -> weigh(value))
+            .expireAfter(new WeatherDataExpiry(retention(weatherCacheProperties)));
+        if (weatherCacheProperties.isRecordStats()) {
+            builder.recordStats();
+        }
+        return CaffeineCacheMetrics.monitor(meterRegistry, builder.build(), "peerCopyCache");
+    }
+
+    static int weigh(CachedWeatherData value) {
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + value.timeseries().estimatedBytes());
+    }
+
+    // An entry is only useful until it can no longer be served stale, whichever stale window is longer
+    private static Duration retention(WeatherCacheProperties properties) {
+        Duration staleWhileRevalidate = properties.getRefresh().getStaleWhileRevalidate();
+        return properties.getStaleIfError().compareTo(staleWhileRevalidate) >= 0
+            ? properties.getStaleIfError()
+            : staleWhileRevalidate;
+    }
+
+    /**
+     * Keeps every entry until its own {@code expiresAt} plus the retention, a revalidation moves the expiry along
+     * with the new {@code expiresAt} and reads leave it unchanged.
+     */
+    static final class WeatherDataExpiry implements Expiry<Long, CachedWeatherData> {
+
+        private final Duration retention;
+
+        WeatherDataExpiry(Duration retention) {
+            this.retention = retention;
+        }
+
+        @Override
+        public long expireAfterCreate(Long key, CachedWeatherData value, long currentTime) {
+            return nanosUntilRemoval(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, CachedWeatherData value, long currentTime, long currentDuration) {
+            return nanosUntilRemoval(value);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, CachedWeatherData value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long nanosUntilRemoval(CachedWeatherData value) {
+            Duration remaining = Duration.between(Instant.now(), value.expiresAt().plus(retention));
+            return remaining.isNegative() ? 0 : remaining.toNanos();
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.cluster")
+public class ClusterProperties {
+
+    /**
+     * Share the weather data cache with the peers, every location is then fetched from MET by its owning replica
+     * only. Needs {@link #self}, {@link #secret} and {@link #peers}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Base url this replica is reachable on by its peers, must be one of {@link #peers}.
+     */
+    private String self;
+
+    /**
+     * Shared secret the replicas send each other in {@code X-Cluster-Secret}. Entries are only served to callers
+     * sending it, as serving one may call MET.
+     */
+    private String secret;
+
+    /**
+     * Base urls of every replica, including this one. All replicas must be configured with the same list.
+     */
+    @NotNull
+    private List<String> peers = new ArrayList<>();
+
+    /**
+     * Points per peer on the hash ring, more points spread the locations more evenly.
+     */
+    @Min(1)
+    private int virtualNodes = 128;
+
+    /**
+     * Time allowed to connect to a peer, a peer that cannot be connected to is treated as unreachable.
+     */
+    @NotNull
+    private Duration connectTimeout = Duration.ofMillis(500);
+
+    /**
+     * Time allowed for the owning peer to answer, longer than the MET total timeout since the owner may have to call
+     * MET first. Calls made for a request are also bounded by its deadline.
+     */
+    @NotNull
+    private Duration readTimeout = Duration.ofSeconds(12);
+
+    /**
+     * Upper bound of the estimated heap held by local copies of entries owned by peers, so only the hot ones are kept
+     * and the locations stay sharded across the replicas.
+     */
+    @NotNull
+    private DataSize copyMaximumWeight = DataSize.ofMegabytes(16);
+
+    /**
+     * How long a peer that could not be reached is skipped, locations it owns are fetched from MET directly meanwhile.
+     */
+    @NotNull
+    private Duration unreachableBackoff = Duration.ofSeconds(10);
+}
@@ -0,0 +1,46 @@
+package com.spond.forecastservice.config;
+
+import com.spond.forecastservice.controller.exception.ExceptionResponse;
+import com.spond.forecastservice.dto.EventForecastDto;
+import com.spond.forecastservice.dto.EventRegistrationDto;
+import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.externalmodel.WeatherData;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * Reflection a native image cannot find on its own. Controller parameters and return types are covered by Spring AOT,
+ * these are the types serialized by an {@code ObjectMapper} directly, the MET model, and the Caffeine classes picked at
+ * runtime.
+ */
+public class ForecastRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String CAFFEINE_PACKAGE = "com.github.benmanes.caffeine.cache";
+
+    //Caffeine generates a cache and a node class per combination of features and instantiates them reflectively, its
+    //node fields are accessed through var handles. These are the weather cache with and without stats and the
+    //response cache, see CacheConfig and ForecastResponseCache, and the client budgets of ClientAdmission
+    private static final List<String> CAFFEINE_CLASSES = List.of("SSSMWA", "SSMWA", "PSWMW", "SSSMS", "SSMS", "PSMS",
+        "SSMSA", "PSAMS");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        //Nested types are registered along with them
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+            ForecastDto.class, EventForecastDto.class, EventRegistrationDto.class, ExceptionResponse.class,
+            WeatherData.class);
+
+        for (String name : CAFFEINE_CLASSES) {
+            Class<?> type = ClassUtils.resolveClassName(CAFFEINE_PACKAGE + "." + name, classLoader);
+            for (; type != null && type.getPackageName().equals(CAFFEINE_PACKAGE); type = type.getSuperclass()) {
+                hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.DECLARED_FIELDS);
+            }
+        }
+    }
+}
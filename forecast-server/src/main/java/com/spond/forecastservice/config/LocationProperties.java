@@ -0,0 +1,26 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.location")
+public class LocationProperties {
+
+    /**
+     * Number of decimals coordinates are snapped to before they are used as cache key, MET itself rounds to 4.
+     */
+    @Min(0)
+    @Max(7)
+    private int gridDecimals = 4;
+
+    /**
+     * Distance in meters within which a fresh forecast of another cached location is reused, 0 disables reuse.
+     */
+    @Min(0)
+    private double reuseRadiusMeters = 500;
+}
@@ -0,0 +1,200 @@
+package com.spond.forecastservice.config;
+
+import com.spond.forecastservice.domain.ForecastField;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.met")
+public class MetApiProperties {
+
+    @NotEmpty
+    private String baseUrl = "https://api.met.no/weatherapi/locationforecast/2.0/compact";
+
+    /**
+     * Instant forecast fields read from the MET response and kept in the cache, every other field is skipped while
+     * parsing.
+     */
+    @NotEmpty
+    private Set<ForecastField> fields = EnumSet.of(ForecastField.AIR_TEMPERATURE, ForecastField.WIND_SPEED);
+
+    /**
+     * Time allowed to establish the TCP and TLS connection.
+     */
+    @NotNull
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Maximum time of inactivity while waiting for response data.
+     */
+    @NotNull
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Hard deadline for a whole call, from leasing a connection until the body has been read.
+     */
+    @NotNull
+    private Duration totalTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Time allowed to lease a connection from the pool when every pooled connection is busy.
+     */
+    @NotNull
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Pool size, every call goes to the same host so this is also the limit per route.
+     */
+    @Min(1)
+    private int maxConnections = 20;
+
+    /**
+     * Pooled connections idle for longer than this are closed before the server or a proxy drops them.
+     */
+    @NotNull
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Maximum lifetime of a pooled connection, so DNS changes of the upstream are eventually picked up.
+     */
+    @NotNull
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Deadline of an incoming request, MET calls made for it are aborted and waiting for a call in flight is given
+     * up once it has passed. Calls are bounded by {@code totalTimeout} either way.
+     */
+    @NotNull
+    private Duration requestDeadline = Duration.ofSeconds(8);
+
+    @Valid
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    @Valid
+    private Hedging hedging = new Hedging();
+
+    @Valid
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * AIMD limit of concurrent MET calls: grows by one per limit's worth of fast successful calls and is multiplied
+     * by {@code backoffRatio} on every timeout, 429, 5xx or call slower than {@code latencyThreshold}. Calls over the
+     * limit are rejected instead of queueing up request threads behind a slow upstream.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+
+        @Min(1)
+        private int initialLimit = 10;
+
+        @Min(1)
+        private int minLimit = 2;
+
+        /**
+         * Upper bound of the limit, there is no point in exceeding the connection pool.
+         */
+        @Min(1)
+        private int maxLimit = 20;
+
+        @DecimalMin("0.1")
+        @DecimalMax("0.95")
+        private double backoffRatio = 0.7;
+
+        /**
+         * Successful calls slower than this are treated as a sign of overload.
+         */
+        @NotNull
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+    }
+
+    /**
+     * Count based circuit breaker, opens when the share of failed calls among the last {@code slidingWindowSize}
+     * calls reaches {@code failureRateThreshold}. Timeouts, connection errors, 429 and 5xx count as failures.
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        private boolean enabled = true;
+
+        @DecimalMin("0.01")
+        @DecimalMax("1.0")
+        private double failureRateThreshold = 0.5;
+
+        @Min(1)
+        private int slidingWindowSize = 20;
+
+        /**
+         * Calls recorded before the failure rate is evaluated at all.
+         */
+        @Min(1)
+        private int minimumCalls = 10;
+
+        /**
+         * How long calls are rejected once the breaker opened, before trial calls are let through.
+         */
+        @NotNull
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Trial calls that must succeed to close the breaker again, a single failure opens it again.
+         */
+        @Min(1)
+        private int halfOpenCalls = 3;
+    }
+
+    /**
+     * A call that has not answered within the {@code percentile} latency of recent calls is hedged with a second,
+     * identical call, the first response wins and the other call is aborted. Hedges are paid for from a budget that
+     * every answered call adds {@code budgetRatio} to, so at most that share of calls is hedged on top of a small
+     * burst.
+     */
+    @Data
+    public static class Hedging {
+
+        private boolean enabled = true;
+
+        @DecimalMin("0.5")
+        @DecimalMax("0.999")
+        private double percentile = 0.95;
+
+        /**
+         * Calls never hedge earlier than this, however fast the recent calls were.
+         */
+        @NotNull
+        private Duration minDelay = Duration.ofMillis(50);
+
+        /**
+         * Number of recent call latencies the percentile is taken over.
+         */
+        @Min(10)
+        private int sampleSize = 200;
+
+        /**
+         * Latencies recorded before calls are hedged at all.
+         */
+        @Min(1)
+        private int minSamples = 20;
+
+        @DecimalMin("0.0")
+        @DecimalMax("0.5")
+        private double budgetRatio = 0.05;
+
+        /**
+         * Hedges the budget can hold, sent at once when many calls stall together.
+         */
+        @Min(1)
+        private int budgetBurst = 5;
+    }
+}
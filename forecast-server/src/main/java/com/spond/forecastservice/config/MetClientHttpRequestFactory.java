@@ -0,0 +1,128 @@
+package com.spond.forecastservice.config;
+
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Connect and read timeouts only bound a single step of a call, this factory also aborts a call as a whole once its
+ * total deadline has passed, wherever it is at that point. Calls made within {@link #call(CallHandle, Supplier)}
+ * are aborted earlier if the deadline of their handle passes first, and can be aborted from other threads. Aborting
+ * a call that already completed is a no-op. The abort task of a call made within {@link #call(CallHandle, Supplier)}
+ * is cancelled as soon as it returns, others keep theirs queued until the total timeout.
+ */
+public class MetClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private static final ThreadLocal<CallHandle> CURRENT_CALL = new ThreadLocal<>();
+
+    private final long totalTimeoutNanos;
+    private final ScheduledThreadPoolExecutor deadlineScheduler;
+
+    public MetClientHttpRequestFactory(final HttpClient httpClient, final Duration totalTimeout) {
+        super(httpClient);
+        this.totalTimeoutNanos = totalTimeout.toNanos();
+        this.deadlineScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("met-call-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlineScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Makes the calls of the current thread abortable through the handle while {@code call} runs.
+     */
+    public static <T> T call(final CallHandle handle, final Supplier<T> call) {
+        CURRENT_CALL.set(handle);
+        try {
+            return call.get();
+        }
+        finally {
+            CURRENT_CALL.remove();
+            handle.cancelTimeout();
+        }
+    }
+
+    @Override
+    protected void postProcessHttpRequest(final ClassicHttpRequest request) {
+        if (request instanceof HttpUriRequestBase cancellable) {
+            CallHandle handle = CURRENT_CALL.get();
+            long timeoutNanos = handle != null ? Deadline.remainingNanos(handle.deadline, totalTimeoutNanos) : totalTimeoutNanos;
+            ScheduledFuture<?> timeout = deadlineScheduler.schedule(cancellable::cancel, Math.max(0, timeoutNanos),
+                TimeUnit.NANOSECONDS);
+            if (handle != null) {
+                handle.attach(cancellable, timeout);
+            }
+        }
+    }
+
+    //Abort tasks still queued, of calls that have not finished yet
+    int pendingTimeouts() {
+        return deadlineScheduler.getQueue().size();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        deadlineScheduler.shutdownNow();
+        super.destroy();
+    }
+
+    /**
+     * Lets other threads abort the call made within {@link #call(CallHandle, Supplier)}, like the slower of two
+     * hedged calls. A call aborted before it was sent is aborted as soon as it is.
+     */
+    public static final class CallHandle {
+
+        private final Deadline deadline;
+        private volatile HttpUriRequestBase request;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile boolean aborted;
+
+        /**
+         * @param deadline also bounds the call, may be {@code null}
+         */
+        public CallHandle(final Deadline deadline) {
+            this.deadline = deadline;
+        }
+
+        public void abort() {
+            aborted = true;
+            HttpUriRequestBase current = request;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        //Removes the abort task of a finished call from the scheduler, rather than leaving it queued with its request
+        private void cancelTimeout() {
+            ScheduledFuture<?> current = timeout;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+
+        //Both sides write before they read, so either the request sees the abort or the abort sees the request
+        private void attach(HttpUriRequestBase request, ScheduledFuture<?> timeout) {
+            cancelTimeout();
+            this.timeout = timeout;
+            this.request = request;
+            if (aborted) {
+                request.cancel();
+            }
+        }
+    }
+}
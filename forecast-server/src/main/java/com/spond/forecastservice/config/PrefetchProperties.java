@@ -0,0 +1,53 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.prefetch")
+public class PrefetchProperties {
+
+    /**
+     * Prefetch the forecasts of registered events, registration is accepted either way.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long before the start of a registered event its forecast is fetched or revalidated.
+     */
+    @NotEmpty
+    private List<Duration> leadTimes = List.of(Duration.ofHours(24), Duration.ofHours(3), Duration.ofMinutes(30));
+
+    /**
+     * Prefetches are brought forward by a per event offset of up to this duration, so events starting at the same
+     * time are not all prefetched at once.
+     */
+    @NotNull
+    private Duration spread = Duration.ofMinutes(5);
+
+    /**
+     * How often due prefetches are started.
+     */
+    @NotNull
+    private Duration interval = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of prefetches started per interval, the rest is picked up by the next runs.
+     */
+    @Min(1)
+    private int maxPerInterval = 50;
+
+    /**
+     * Maximum number of registered upcoming events.
+     */
+    @Min(1)
+    private int maxEvents = 100_000;
+}
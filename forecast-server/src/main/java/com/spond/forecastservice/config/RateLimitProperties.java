@@ -0,0 +1,82 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Admit the forecast requests of every client within its budgets, others are answered with a 429.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Clients sending one of the {@code apiKeys} in this header are told apart by it, all others by their address.
+     */
+    @NotEmpty
+    private String apiKeyHeader = "X-Api-Key";
+
+    /**
+     * Keys issued to integrations, each gets budgets of its own. Any other value of the header is ignored, so a
+     * client cannot get a fresh budget, or evict the budgets of others, by sending a new key with every request.
+     */
+    @NotNull
+    private Set<String> apiKeys = new HashSet<>();
+
+    /**
+     * Budget of forecast requests per client, a batch counts as one.
+     */
+    @Valid
+    @NotNull
+    private Budget requests = new Budget(50, 100);
+
+    /**
+     * Stricter budget of locations per client that are not cached yet and have to be looked up from MET or a peer,
+     * so no client can churn the cache or use up the MET quota.
+     */
+    @Valid
+    @NotNull
+    private Budget misses = new Budget(2, 20);
+
+    /**
+     * Number of clients whose budgets are tracked at a time, the least recently seen are forgotten beyond it.
+     */
+    @Min(1)
+    private int maxClients = 100_000;
+
+    /**
+     * Budgets of clients idle for longer than this are forgotten, it should exceed the time to refill a budget.
+     */
+    @NotNull
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Token bucket refilled with {@code perSecond} tokens per second, holding at most {@code burst}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+
+        @DecimalMin("0.001")
+        private double perSecond;
+
+        @Min(1)
+        private int burst;
+    }
+}
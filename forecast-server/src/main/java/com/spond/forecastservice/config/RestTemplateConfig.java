@@ -1,15 +1,63 @@
 package com.spond.forecastservice.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Pooled keep-alive client for the MET api. Every call goes to the same host, so the pool is sized per route,
+     * and content compression is left enabled so responses are negotiated and decompressed as gzip.
+     */
+    @Bean
+    public MetClientHttpRequestFactory metClientHttpRequestFactory(MetApiProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(properties.getMaxConnections())
+            .setMaxConnPerRoute(properties.getMaxConnections())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(toTimeout(properties.getConnectTimeout()))
+                .setSocketTimeout(toTimeout(properties.getReadTimeout()))
+                .setTimeToLive(toTimeValue(properties.getConnectionTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(toTimeout(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(toTimeout(properties.getReadTimeout()))
+                .build())
+            .evictIdleConnections(toTimeValue(properties.getIdleTimeout()))
+            .evictExpiredConnections()
+            .build();
+
+        return new MetClientHttpRequestFactory(httpClient, properties.getTotalTimeout());
+    }
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, MetClientHttpRequestFactory metClientHttpRequestFactory) {
+        return builder.requestFactory(() -> metClientHttpRequestFactory).build();
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
     }
 }
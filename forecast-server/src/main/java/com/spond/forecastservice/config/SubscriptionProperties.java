@@ -0,0 +1,35 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.subscription")
+public class SubscriptionProperties {
+
+    /**
+     * Maximum number of open forecast streams.
+     */
+    @Min(1)
+    private int maxSubscriptions = 10_000;
+
+    /**
+     * A stream is closed once its event has ended, or after this duration at the latest. Clients reconnect to keep
+     * following the forecast.
+     */
+    @NotNull
+    private Duration maxDuration = Duration.ofHours(24);
+
+    /**
+     * How often the location of every open stream is kept fresh, one refresh per location however many streams
+     * follow it, and a keep-alive comment is sent to detect closed connections.
+     */
+    @NotNull
+    private Duration interval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,125 @@
+package com.spond.forecastservice.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "forecast.cache")
+public class WeatherCacheProperties {
+
+    /**
+     * Upper bound of the estimated heap held by cached forecasts. Beyond it the entries least likely to be read again,
+     * by frequency and recency, are evicted first.
+     */
+    @NotNull
+    private DataSize maximumWeight = DataSize.ofMegabytes(128);
+
+    /**
+     * Record hit, miss and eviction statistics, exposed as {@code cache.*} meters.
+     */
+    private boolean recordStats = true;
+
+    /**
+     * How long after {@code expiresAt} an entry is still served when the MET api fails, times out or is rejected
+     * by the circuit breaker or concurrency limit. Entries are removed once both this and
+     * {@code refresh.stale-while-revalidate} have passed.
+     */
+    @NotNull
+    private Duration staleIfError = Duration.ofHours(1);
+
+    @Valid
+    private Refresh refresh = new Refresh();
+
+    @Valid
+    private Snapshot snapshot = new Snapshot();
+
+    @Valid
+    private Responses responses = new Responses();
+
+    @Data
+    public static class Refresh {
+
+        /**
+         * Revalidate recently accessed entries in the background before they expire.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long before {@code expiresAt} an entry becomes due for a background refresh.
+         */
+        @NotNull
+        private Duration refreshAhead = Duration.ofMinutes(2);
+
+        /**
+         * Upper bound of the per entry random offset added on top of {@code refreshAhead}, so entries that expire
+         * together are not all refreshed together.
+         */
+        @NotNull
+        private Duration jitter = Duration.ofMinutes(1);
+
+        /**
+         * Only entries read within this window are refreshed ahead, everything else is left to expire.
+         */
+        @NotNull
+        private Duration accessWindow = Duration.ofMinutes(30);
+
+        /**
+         * How long after {@code expiresAt} an entry is still served while it is revalidated in the background.
+         */
+        @NotNull
+        private Duration staleWhileRevalidate = Duration.ofMinutes(10);
+
+        /**
+         * How often the cache is scanned for entries due for a refresh.
+         */
+        @NotNull
+        private Duration scanInterval = Duration.ofSeconds(15);
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * Periodically persist the cache to {@code path} and load it again on startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Snapshot file, written through a temporary sibling file and an atomic rename. Required when enabled, and
+         * must not be shared with another instance, they would overwrite each other's snapshot.
+         */
+        private Path path;
+
+        /**
+         * How often the snapshot is written, it is also written once on shutdown.
+         */
+        @NotNull
+        private Duration writeInterval = Duration.ofMinutes(1);
+
+        /**
+         * Snapshots written longer ago than this are ignored on startup.
+         */
+        @NotNull
+        private Duration maxAge = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Responses {
+
+        /**
+         * Maximum number of serialized forecast responses kept, one per location and forecast hour. 0 serializes every
+         * response again.
+         */
+        @Min(0)
+        private long maximumSize = 100_000;
+    }
+}
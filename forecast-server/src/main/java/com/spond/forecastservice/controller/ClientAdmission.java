@@ -0,0 +1,159 @@
+package com.spond.forecastservice.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spond.forecastservice.config.RateLimitProperties;
+import com.spond.forecastservice.controller.exception.RateLimitedException;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Per client admission control of the forecast endpoints, see {@link RateLimitProperties}. Every request takes a
+ * token of the client's request budget, and every location it needs that is not cached yet one of its stricter miss
+ * budget. The buckets are lock free and looked up in a bounded Caffeine cache, so admitting a request costs a
+ * concurrent map read and a compare and set or two.
+ */
+@Component
+public class ClientAdmission implements MeterBinder {
+
+    public static final String RATE_LIMITED = "forecast.rate.limited";
+
+    private final RateLimitProperties properties;
+    private final MetApiService metApiService;
+    private final LocationGrid locationGrid;
+    private final LongSupplier clock;
+    private final Cache<String, ClientBudgets> clients;
+    private Counter requestsLimited;
+    private Counter missesLimited;
+
+    @Autowired
+    public ClientAdmission(final RateLimitProperties properties, final MetApiService metApiService,
+                           final LocationGrid locationGrid) {
+        this(properties, metApiService, locationGrid, System::nanoTime);
+    }
+
+    ClientAdmission(final RateLimitProperties properties, final MetApiService metApiService,
+                    final LocationGrid locationGrid, final LongSupplier clock) {
+        this.properties = properties;
+        this.metApiService = metApiService;
+        this.locationGrid = locationGrid;
+        this.clock = clock;
+        this.clients = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxClients())
+            .expireAfterAccess(properties.getIdleTimeout())
+            .build();
+    }
+
+    /**
+     * @throws RateLimitedException if the client used up its request budget, or its miss budget and the event's
+     *                              location is not cached
+     */
+    public void admit(final HttpServletRequest request, final Event event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ClientBudgets budgets = budgetsOf(request);
+        long now = clock.getAsLong();
+        admitRequest(budgets, now);
+        if (!metApiService.isCached(event.latitude(), event.longitude())) {
+            admitMisses(budgets, 1, now);
+        }
+    }
+
+    /**
+     * Admits a batch as a single request, that takes a miss token for every distinct location not cached yet.
+     *
+     * @throws RateLimitedException if the client used up its request budget or the batch exceeds its miss budget
+     */
+    public void admit(final HttpServletRequest request, final List<Event> events) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ClientBudgets budgets = budgetsOf(request);
+        long now = clock.getAsLong();
+        admitRequest(budgets, now);
+        Set<Long> missedKeys = new HashSet<>();
+        for (Event event : events) {
+            long key = locationGrid.toKey(event.latitude(), event.longitude());
+            if (!missedKeys.contains(key) && !metApiService.isCached(event.latitude(), event.longitude())) {
+                missedKeys.add(key);
+            }
+        }
+        if (!missedKeys.isEmpty()) {
+            admitMisses(budgets, missedKeys.size(), now);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        requestsLimited = rateLimited(registry, "requests");
+        missesLimited = rateLimited(registry, "misses");
+    }
+
+    private void admitRequest(ClientBudgets budgets, long now) {
+        long waitNanos = budgets.requests.tryAcquire(1, now);
+        if (waitNanos > 0) {
+            increment(requestsLimited);
+            throw new RateLimitedException("Too many forecast requests!", Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private void admitMisses(ClientBudgets budgets, int misses, long now) {
+        long waitNanos = budgets.misses.tryAcquire(misses, now);
+        if (waitNanos > 0) {
+            //The request is not served, so a client retrying an uncached location only runs down its miss budget
+            budgets.requests.release(1);
+            increment(missesLimited);
+            throw new RateLimitedException("Too many forecasts of locations that are not cached!",
+                Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private ClientBudgets budgetsOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getApiKeyHeader());
+        //Behind a proxy the address is only the client's with server.forward-headers-strategy set
+        String client = apiKey != null && properties.getApiKeys().contains(apiKey)
+            ? "key:" + apiKey
+            : "ip:" + request.getRemoteAddr();
+        return clients.get(client, key -> new ClientBudgets(properties, clock.getAsLong()));
+    }
+
+    private static Counter rateLimited(MeterRegistry registry, String budget) {
+        return Counter.builder(RATE_LIMITED)
+            .description("Forecast requests rejected because the client used up a budget")
+            .tag("budget", budget)
+            .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static final class ClientBudgets {
+
+        private final TokenBucket requests;
+        private final TokenBucket misses;
+
+        private ClientBudgets(RateLimitProperties properties, long nowNanos) {
+            this.requests = new TokenBucket(properties.getRequests().getPerSecond(), properties.getRequests().getBurst(),
+                nowNanos);
+            this.misses = new TokenBucket(properties.getMisses().getPerSecond(), properties.getMisses().getBurst(),
+                nowNanos);
+        }
+    }
+}
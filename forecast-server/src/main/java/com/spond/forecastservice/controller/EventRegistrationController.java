@@ -0,0 +1,34 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.dto.EventRegistrationDto;
+import com.spond.forecastservice.service.EventPrefetchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class EventRegistrationController {
+
+    private final EventPrefetchService eventPrefetchService;
+
+    @PostMapping("/events")
+    @ResponseStatus(HttpStatus.CREATED)
+    public EventRegistrationDto registerEvent(@RequestBody Event event) {
+        return eventPrefetchService.register(event);
+    }
+
+    @DeleteMapping("/events/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void unregisterEvent(@PathVariable String id) {
+        eventPrefetchService.unregister(id);
+    }
+}
@@ -1,16 +1,28 @@
 package com.spond.forecastservice.controller;
 
 import com.spond.forecastservice.domain.Event;
-import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.dto.EventForecastDto;
+import com.spond.forecastservice.metrics.ForecastMetrics;
 import com.spond.forecastservice.service.ForecastService;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -19,12 +31,24 @@ import java.time.Instant;
 public class ForecastController {
 
     private final ForecastService forecastService;
+    private final ForecastResponseCache forecastResponseCache;
+    private final ClientAdmission clientAdmission;
+    private final ForecastMetrics forecastMetrics;
 
+    /**
+     * Answers with the {@code ETag} and {@code Last-Modified} of the cached forecast and a {@code Cache-Control}
+     * max age until it expires. A client or cache that still holds the current version gets a 304 before the
+     * response is built. The body of requests without the window is usually served from {@link ForecastResponseCache}.
+     * Clients over their budget get a 429, see {@link ClientAdmission}.
+     */
     @GetMapping("/event/forecast")
-    public ForecastDto getForecast(@RequestParam double latitude,
-                                   @RequestParam double longitude,
-                                   @RequestParam Instant startTime,
-                                   @RequestParam Instant endTime) {
+    public ResponseEntity<byte[]> getForecast(@RequestParam double latitude,
+                                              @RequestParam double longitude,
+                                              @RequestParam Instant startTime,
+                                              @RequestParam Instant endTime,
+                                              @RequestParam(defaultValue = "false") boolean window,
+                                              WebRequest webRequest,
+                                              HttpServletRequest request) {
 
         Event event = Event.builder()
             .latitude(latitude)
@@ -33,6 +57,38 @@ public class ForecastController {
             .endTime(endTime)
             .build();
 
-        return forecastService.findForecast(event);
+        clientAdmission.admit(request, event);
+        //Timed from the lookup until the response is built, like ForecastService.findForecast
+        return forecastMetrics.findForecastTimer().record(() -> forecastResponse(event, window, webRequest));
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<byte[]> forecastResponse(Event event, boolean window, WebRequest webRequest) {
+        CachedWeatherData cachedData = forecastService.lookupForecast(event);
+        //The response is derived from the forecast and the request parameters only, the url already covers the latter
+        String eTag = "W/\"" + Long.toHexString(cachedData.timeseries().contentHash()) + "\"";
+        long lastModified = cachedData.lastModifiedMillis();
+        CacheControl cacheControl = CacheControl
+            .maxAge(Duration.ofSeconds(Math.max(0, Duration.between(Instant.now(), cachedData.expiresAt()).toSeconds())))
+            .cachePublic();
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(cacheControl)
+                .build();
+        }
+
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .lastModified(lastModified)
+            .cacheControl(cacheControl)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(forecastResponseCache.toForecastJson(cachedData, event, window));
+    }
+
+    @PostMapping("/events/forecast")
+    public List<EventForecastDto> getForecasts(@RequestBody List<Event> events,
+                                               @RequestParam(defaultValue = "false") boolean window,
+                                               HttpServletRequest request) {
+        clientAdmission.admit(request, events);
+        return window ? forecastService.findWindowForecasts(events) : forecastService.findForecasts(events);
+    }
+}
@@ -0,0 +1,105 @@
+package com.spond.forecastservice.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastStage;
+import com.spond.forecastservice.metrics.StageTimer;
+import com.spond.forecastservice.service.ForecastService;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Serialized responses of {@link ForecastController#getForecast}, so the many identical requests for a popular venue
+ * cost a lookup instead of building and serializing the same {@link com.spond.forecastservice.dto.ForecastDto} again.
+ * <p>
+ * Without the window the response only depends on the location's forecast and the point closest to the start of the
+ * event, so responses are keyed by location and the epoch second of that point. Every response remembers the content
+ * hash of the forecast it was built from and is rebuilt once the cached forecast has changed, a revalidation that
+ * kept the data does not invalidate it. Window responses also depend on the end of the event and are not kept.
+ */
+@Component
+public class ForecastResponseCache implements MeterBinder {
+
+    public static final String CACHE_NAME = "forecastResponses";
+
+    private final ForecastService forecastService;
+    private final LocationGrid locationGrid;
+    private final ObjectMapper objectMapper;
+    private final Cache<ResponseKey, CachedResponse> responses;
+
+    public ForecastResponseCache(final ForecastService forecastService, final LocationGrid locationGrid,
+                                 final ObjectMapper objectMapper, final WeatherCacheProperties weatherCacheProperties) {
+        this.forecastService = forecastService;
+        this.locationGrid = locationGrid;
+        this.objectMapper = objectMapper;
+        long maximumSize = weatherCacheProperties.getResponses().getMaximumSize();
+        this.responses = maximumSize > 0
+            ? Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build()
+            : null;
+    }
+
+    /**
+     * @return the json of {@link ForecastService#toForecast(CachedWeatherData, Event, boolean)}, shared between
+     * callers and not to be modified
+     */
+    public byte[] toForecastJson(final CachedWeatherData cachedData, final Event event, final boolean includeWindow) {
+        ForecastTimeseries timeseries = cachedData != null ? cachedData.timeseries() : null;
+        if (responses == null || includeWindow || timeseries == null || timeseries.isEmpty()) {
+            return serialize(forecastService.toForecast(cachedData, event, includeWindow));
+        }
+        ResponseKey key = new ResponseKey(locationGrid.toKey(event.latitude(), event.longitude()),
+            timeseries.epochSecond(timeseries.findClosestIndex(event.startTime())));
+        long contentHash = timeseries.contentHash();
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null && cached.contentHash() == contentHash) {
+            return cached.json();
+        }
+        byte[] json = serialize(forecastService.toForecast(cachedData, event, false));
+        responses.put(key, new CachedResponse(contentHash, json));
+        return json;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (responses != null) {
+            new CaffeineCacheMetrics<>(responses, CACHE_NAME, List.of()).bindTo(registry);
+        }
+    }
+
+    //Package private so tests sharing an application context start without responses of earlier tests
+    void invalidateAll() {
+        if (responses != null) {
+            responses.invalidateAll();
+        }
+    }
+
+    private byte[] serialize(Object forecast) {
+        StageTimer serialization = StageTimer.start(ForecastStage.SERIALIZE);
+        try {
+            return objectMapper.writeValueAsBytes(forecast);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize forecast", e);
+        }
+        finally {
+            serialization.stop();
+        }
+    }
+
+    private record ResponseKey(long locationKey, long epochSecond) {
+    }
+
+    private record CachedResponse(long contentHash, byte[] json) {
+    }
+}
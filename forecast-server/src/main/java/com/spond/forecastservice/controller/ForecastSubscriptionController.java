@@ -0,0 +1,47 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.service.ForecastSubscriptionService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class ForecastSubscriptionController {
+
+    private final ForecastSubscriptionService forecastSubscriptionService;
+    private final ClientAdmission clientAdmission;
+
+    /**
+     * Server-sent events stream of the event's forecast: a {@code forecast} event with the current
+     * {@link com.spond.forecastservice.dto.ForecastDto} right away, and another one whenever it changes, until the
+     * event has ended. Takes the same parameters, and answers invalid events, upstream failures and clients over
+     * their budget the same way, as {@link ForecastController#getForecast}.
+     */
+    @GetMapping("/event/forecast/stream")
+    public SseEmitter streamForecast(@RequestParam double latitude,
+                                     @RequestParam double longitude,
+                                     @RequestParam Instant startTime,
+                                     @RequestParam Instant endTime,
+                                     @RequestParam(defaultValue = "false") boolean window,
+                                     HttpServletRequest request) {
+
+        Event event = Event.builder()
+            .latitude(latitude)
+            .longitude(longitude)
+            .startTime(startTime)
+            .endTime(endTime)
+            .build();
+
+        clientAdmission.admit(request, event);
+        return forecastSubscriptionService.subscribe(event, window);
+    }
+}
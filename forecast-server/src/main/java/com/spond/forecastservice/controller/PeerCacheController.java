@@ -0,0 +1,68 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.controller.exception.ErrorCode;
+import com.spond.forecastservice.controller.exception.PeerRequestRejectedException;
+import com.spond.forecastservice.domain.InvalidEventException;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.cluster.PeerCacheClient;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import com.spond.forecastservice.service.external.snapshot.WeatherSnapshotCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Owner side of the shared cache tier, serves the entries of the locations this replica owns to its peers in the
+ * {@link WeatherSnapshotCodec} format. Serving an entry may call MET outside of any client's rate limit, so only
+ * peers sending the cluster secret are served, and only the keys this replica owns.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "forecast.cluster", name = "enabled", havingValue = "true")
+public class PeerCacheController {
+
+    private final MetApiService metApiService;
+    private final LocationGrid locationGrid;
+    private final PeerCacheClient peerCacheClient;
+    private final LocationProperties locationProperties;
+    private final MetApiProperties metApiProperties;
+
+    @GetMapping(value = PeerCacheClient.ENTRY_PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] getEntry(@PathVariable long key,
+                           @RequestHeader(value = PeerCacheClient.SECRET_HEADER, required = false) String secret)
+        throws IOException {
+        if (!peerCacheClient.isPeer(secret)) {
+            throw new PeerRequestRejectedException(HttpStatus.FORBIDDEN, ErrorCode.FORBIDDEN,
+                "Only served to peers of the cluster");
+        }
+        if (Math.abs(locationGrid.latitude(key)) > 90 || Math.abs(locationGrid.longitude(key)) > 180) {
+            throw new InvalidEventException("Invalid location key " + key);
+        }
+        // Replicas may briefly disagree on the owner while the peers are reconfigured, the caller then calls MET
+        if (!peerCacheClient.isOwnedBySelf(key)) {
+            throw new PeerRequestRejectedException(HttpStatusCode.valueOf(PeerCacheClient.MISDIRECTED_REQUEST),
+                ErrorCode.NOT_OWNER, "Location key " + key + " is not owned by this replica");
+        }
+
+        CachedWeatherData data = metApiService.getOwnedForecast(key);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + data.timeseries().size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            WeatherSnapshotCodec.writeFormat(out, locationProperties.getGridDecimals(), metApiProperties.getFields());
+            WeatherSnapshotCodec.writeEntry(out, key, data);
+        }
+        return bytes.toByteArray();
+    }
+}
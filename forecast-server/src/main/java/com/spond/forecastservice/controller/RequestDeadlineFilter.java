@@ -0,0 +1,36 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds the {@link Deadline} of {@code forecast.met.request-deadline} to every request, so MET calls made for it
+ * give up once the client would not wait for the answer anymore.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final MetApiProperties metApiProperties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Deadline.after(metApiProperties.getRequestDeadline()).bind();
+        try {
+            filterChain.doFilter(request, response);
+        }
+        finally {
+            Deadline.unbind();
+        }
+    }
+}
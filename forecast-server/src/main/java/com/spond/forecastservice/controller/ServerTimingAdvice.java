@@ -0,0 +1,38 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.metrics.StageTimings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the {@code Server-Timing} header right before the body is written, the last moment headers can still be set.
+ * Serializing the body itself is therefore not part of {@code total}.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(prefix = "forecast.server-timing", name = "enabled", havingValue = "true")
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        StageTimings timings = StageTimings.current();
+        if (timings != null) {
+            response.getHeaders().set(SERVER_TIMING, timings.toServerTiming());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,34 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.metrics.StageTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Collects the {@link StageTimings} of every request, which {@link ServerTimingAdvice} returns in the
+ * {@code Server-Timing} header. Opt-in with {@code forecast.server-timing.enabled}, the header shows clients how a
+ * response was served.
+ */
+@Component
+@ConditionalOnProperty(prefix = "forecast.server-timing", name = "enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        StageTimings.bind();
+        try {
+            filterChain.doFilter(request, response);
+        }
+        finally {
+            StageTimings.unbind();
+        }
+    }
+}
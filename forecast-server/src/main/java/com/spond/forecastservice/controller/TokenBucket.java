@@ -0,0 +1,45 @@
+package com.spond.forecastservice.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket, kept as the single point in time at which the bucket is full again: every token taken
+ * moves it one refill interval later, and a request fits while that stays within {@code burst} intervals from now.
+ * A request for more tokens than the bucket holds is let through when the bucket is full, leaving it in debt.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double perSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.capacityNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return {@code 0} if the tokens were taken, otherwise how long until they would be available, in nanos
+     */
+    long tryAcquire(int tokens, long nowNanos) {
+        long cost = tokens * intervalNanos;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + cost;
+            if (next - nowNanos > capacityNanos && current - nowNanos > 0) {
+                return Math.max(1, cost <= capacityNanos ? next - nowNanos - capacityNanos : current - nowNanos);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Hands back tokens taken by {@link #tryAcquire(int, long)} for a request that was turned away after all.
+     */
+    void release(int tokens) {
+        fullAt.addAndGet(-tokens * intervalNanos);
+    }
+}
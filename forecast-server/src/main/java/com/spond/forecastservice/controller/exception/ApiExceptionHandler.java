@@ -1,7 +1,13 @@
 package com.spond.forecastservice.controller.exception;
 
+import com.spond.forecastservice.domain.CapacityExceededException;
 import com.spond.forecastservice.domain.InvalidEventException;
+import com.spond.forecastservice.service.external.MetApiException;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.MetApiUnavailableException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -15,6 +21,9 @@ import org.springframework.web.servlet.resource.NoResourceFoundException;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Errors are always answered as json, also to clients that only accept the event stream of a forecast subscription.
+ */
 @RestControllerAdvice
 public class ApiExceptionHandler {
 
@@ -22,6 +31,7 @@ public class ApiExceptionHandler {
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<ExceptionResponse> noResourceFoundExceptionHandler(NoResourceFoundException e) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.NOT_FOUND, e.getMessage()));
     }
 
@@ -29,13 +39,64 @@ public class ApiExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ExceptionResponse> invalidEventException(InvalidEventException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.VALIDATION_ERROR, e.getMessage()));
     }
 
+    @ExceptionHandler(RateLimitedException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<ExceptionResponse> rateLimitedException(RateLimitedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(ErrorCode.RATE_LIMITED, e.getMessage()));
+    }
+
+    @ExceptionHandler(CapacityExceededException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ExceptionResponse> capacityExceededException(CapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(ErrorCode.CAPACITY_EXCEEDED, e.getMessage()));
+    }
+
+    @ExceptionHandler(PeerRequestRejectedException.class)
+    public ResponseEntity<ExceptionResponse> peerRequestRejectedException(PeerRequestRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(e.getErrorCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(MetApiTimeoutException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ResponseEntity<ExceptionResponse> metApiTimeoutException(MetApiTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(ErrorCode.UPSTREAM_TIMEOUT, e.getMessage()));
+    }
+
+    @ExceptionHandler(MetApiUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ExceptionResponse> metApiUnavailableException(MetApiUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(ErrorCode.UPSTREAM_UNAVAILABLE, e.getMessage()));
+    }
+
+    @ExceptionHandler(MetApiException.class)
+    @ResponseStatus(HttpStatus.BAD_GATEWAY)
+    public ResponseEntity<ExceptionResponse> metApiException(MetApiException e) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ExceptionResponse(ErrorCode.UPSTREAM_ERROR, e.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<ExceptionResponse> unhandledExceptionHandler(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.INTERNAL_SERVER_ERROR, e.getMessage()));
     }
 
@@ -43,6 +104,7 @@ public class ApiExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ExceptionResponse> missingServletRequestParameterException(MissingServletRequestParameterException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.VALIDATION_ERROR, e.getMessage()));
     }
 
@@ -50,6 +112,7 @@ public class ApiExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ExceptionResponse> methodArgumentTypeMismatchException(MethodArgumentTypeMismatchException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.VALIDATION_ERROR, e.getMessage()));
     }
 
@@ -65,6 +128,7 @@ public class ApiExceptionHandler {
         });
 
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .contentType(MediaType.APPLICATION_JSON)
             .body(new ExceptionResponse(ErrorCode.VALIDATION_ERROR, errors.toString()));
     }
 }
@@ -3,5 +3,12 @@ package com.spond.forecastservice.controller.exception;
 public enum ErrorCode {
     NOT_FOUND,
     INTERNAL_SERVER_ERROR,
-    VALIDATION_ERROR
+    VALIDATION_ERROR,
+    UPSTREAM_ERROR,
+    UPSTREAM_TIMEOUT,
+    UPSTREAM_UNAVAILABLE,
+    RATE_LIMITED,
+    FORBIDDEN,
+    NOT_OWNER,
+    CAPACITY_EXCEEDED
 }
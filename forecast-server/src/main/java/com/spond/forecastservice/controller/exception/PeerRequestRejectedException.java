@@ -0,0 +1,21 @@
+package com.spond.forecastservice.controller.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * A request to the shared cache tier that this replica does not serve, either not sent by a peer or for a location
+ * owned by another replica.
+ */
+@Getter
+public class PeerRequestRejectedException extends RuntimeException {
+
+    private final HttpStatusCode status;
+    private final ErrorCode errorCode;
+
+    public PeerRequestRejectedException(final HttpStatusCode status, final ErrorCode errorCode, final String message) {
+        super(message);
+        this.status = status;
+        this.errorCode = errorCode;
+    }
+}
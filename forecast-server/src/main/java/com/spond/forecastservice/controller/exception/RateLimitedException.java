@@ -0,0 +1,23 @@
+package com.spond.forecastservice.controller.exception;
+
+import java.time.Duration;
+
+/**
+ * The client used up one of its budgets, see {@link com.spond.forecastservice.config.RateLimitProperties}.
+ */
+public class RateLimitedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public RateLimitedException(final String message, final Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the time until the request would be admitted, rounded up to whole seconds as {@code Retry-After} is
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,23 @@
+package com.spond.forecastservice.domain;
+
+import java.time.Duration;
+
+/**
+ * A valid request this instance has no room for right now, the client may retry after {@link #getRetryAfterSeconds()}.
+ */
+public class CapacityExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public CapacityExceededException(final String message, final Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the time until a retry may succeed, rounded up to whole seconds as {@code Retry-After} is
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
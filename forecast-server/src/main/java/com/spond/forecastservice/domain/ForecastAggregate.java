@@ -0,0 +1,8 @@
+package com.spond.forecastservice.domain;
+
+/**
+ * Minimum, maximum and mean of the values of one {@link ForecastField} over a range of points in time. The mean is
+ * taken over the points, not weighted by the time between them.
+ */
+public record ForecastAggregate(double min, double max, double mean) {
+}
@@ -0,0 +1,24 @@
+package com.spond.forecastservice.domain;
+
+/**
+ * The instant forecast values MET publishes for each point of a timeseries, named after their field in the MET
+ * response.
+ */
+public enum ForecastField {
+    AIR_PRESSURE_AT_SEA_LEVEL("air_pressure_at_sea_level"),
+    AIR_TEMPERATURE("air_temperature"),
+    CLOUD_AREA_FRACTION("cloud_area_fraction"),
+    RELATIVE_HUMIDITY("relative_humidity"),
+    WIND_FROM_DIRECTION("wind_from_direction"),
+    WIND_SPEED("wind_speed");
+
+    private final String externalName;
+
+    ForecastField(final String externalName) {
+        this.externalName = externalName;
+    }
+
+    public String externalName() {
+        return externalName;
+    }
+}
@@ -0,0 +1,233 @@
+package com.spond.forecastservice.domain;
+
+import java.time.Instant;
+
+/**
+ * Columnar, primitive array representation of a location forecast: one {@code long[]} of epoch seconds sorted
+ * ascending and one {@code float[]} column per loaded {@link ForecastField}. Missing values are stored as NaN.
+ * Instances are immutable once built and are shared by every reader of the cache entry.
+ */
+public final class ForecastTimeseries {
+
+    private static final double DECIMAL_SCALE = 10_000d;
+    //Object and array header and reference sizes of a 64 bit JVM with compressed references
+    static final int OBJECT_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+    private static final ForecastTimeseries EMPTY = new ForecastTimeseries(new long[0], new float[ForecastField.values().length][]);
+
+    private final long[] times;
+    private final float[][] columns;
+    //Built on the first window query, a racing build only costs a duplicate of an immutable structure
+    private volatile ForecastWindowIndex windowIndex;
+    //Computed on first use, 0 means not computed yet
+    private volatile long contentHash;
+
+    /**
+     * @param times   epoch seconds of every point, sorted ascending
+     * @param columns values indexed by {@link ForecastField#ordinal()}, {@code null} for fields that were not loaded
+     */
+    public ForecastTimeseries(final long[] times, final float[][] columns) {
+        if (columns.length != ForecastField.values().length) {
+            throw new IllegalArgumentException("Expected one column slot per forecast field");
+        }
+        for (float[] column : columns) {
+            if (column != null && column.length != times.length) {
+                throw new IllegalArgumentException("Every column must have one value per point in time");
+            }
+        }
+        this.times = times;
+        this.columns = columns;
+    }
+
+    public static ForecastTimeseries empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    public long epochSecond(final int index) {
+        return times[index];
+    }
+
+    public Instant time(final int index) {
+        return Instant.ofEpochSecond(times[index]);
+    }
+
+    public boolean hasField(final ForecastField field) {
+        return columns[field.ordinal()] != null;
+    }
+
+    public float value(final ForecastField field, final int index) {
+        float[] column = columns[field.ordinal()];
+        return column != null ? column[index] : Float.NaN;
+    }
+
+    /**
+     * @return the value as {@link Double}, or {@code null} if the field was not loaded or has no value at this point
+     */
+    public Double valueOrNull(final ForecastField field, final int index) {
+        float value = value(field, index);
+        //MET publishes at most a couple of decimals, round away the float widening noise so 3.6f is returned as 3.6
+        return Float.isNaN(value) ? null : round(value);
+    }
+
+    /**
+     * Aggregates the values of a field over the points {@code from} to {@code to}, both inclusive, in constant time.
+     *
+     * @return the aggregate, or {@code null} if the field was not loaded or has no value in the range
+     */
+    public ForecastAggregate aggregate(final ForecastField field, final int from, final int to) {
+        if (from < 0 || to >= times.length || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + "] of " + times.length + " points");
+        }
+        ForecastWindowIndex index = windowIndex;
+        if (index == null) {
+            index = new ForecastWindowIndex(this);
+            windowIndex = index;
+        }
+        ForecastAggregate aggregate = index.aggregate(field, from, to);
+        return aggregate == null ? null : new ForecastAggregate(
+            round(aggregate.min()), round(aggregate.max()), round(aggregate.mean()));
+    }
+
+    /**
+     * @return the index of the first point at or after the given time, {@link #size()} if there is none
+     */
+    public int findFirstIndexFrom(final Instant time) {
+        long epochMillis = time.toEpochMilli();
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] * 1000 < epochMillis) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the last point at or before the given time, {@code -1} if there is none
+     */
+    public int findLastIndexUntil(final Instant time) {
+        long epochMillis = time.toEpochMilli();
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] * 1000 <= epochMillis) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * 64 bit hash of every point in time and value, stable across instances and restarts, so it can serve as the
+     * version of the forecast in an {@code ETag}.
+     */
+    public long contentHash() {
+        long hash = contentHash;
+        if (hash == 0) {
+            hash = 1;
+            for (long time : times) {
+                hash = mix(hash, time);
+            }
+            for (float[] column : columns) {
+                hash = mix(hash, column == null ? -1 : column.length);
+                if (column != null) {
+                    for (float value : column) {
+                        hash = mix(hash, Float.floatToIntBits(value));
+                    }
+                }
+            }
+            hash = hash == 0 ? 1 : hash;
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Estimated heap size in bytes, including the window index a window query builds later on, so cache entries can
+     * be weighed before they are first aggregated.
+     */
+    public long estimatedBytes() {
+        int size = times.length;
+        long bytes = OBJECT_HEADER_BYTES + 4L * REFERENCE_BYTES + Long.BYTES
+            + arrayBytes(size, Long.BYTES)
+            + arrayBytes(columns.length, REFERENCE_BYTES);
+        for (float[] column : columns) {
+            if (column != null) {
+                bytes += arrayBytes(size, Float.BYTES) + ForecastWindowIndex.estimatedBytesPerField(size);
+            }
+        }
+        return bytes;
+    }
+
+    static long arrayBytes(final int length, final int elementBytes) {
+        //Array header, padded to a multiple of 8 bytes
+        return (OBJECT_HEADER_BYTES + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    private static long mix(final long hash, final long value) {
+        //Multiply by the 64 bit golden ratio and fold the high bits back in, enough to spread small value changes
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 32);
+    }
+
+    private static double round(final double value) {
+        return Math.round(value * DECIMAL_SCALE) / DECIMAL_SCALE;
+    }
+
+    public int findClosestIndex(final Instant time) {
+        return findClosestIndex(times, time.toEpochMilli());
+    }
+
+    /**
+     * Finds the index of the point in time closest to the given one, preferring the earlier point on a tie.
+     *
+     * @param times       epoch seconds sorted ascending, must not be empty
+     * @param epochMillis the point in time to look for
+     */
+    public static int findClosestIndex(final long[] times, final long epochMillis) {
+        int low = 0;
+        int high = times.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midMillis = times[mid] * 1000;
+            if (midMillis < epochMillis) {
+                low = mid + 1;
+            }
+            else if (midMillis > epochMillis) {
+                high = mid - 1;
+            }
+            else {
+                return mid; // Exact match found
+            }
+        }
+
+        int beforeIndex = low - 1; // Closest before
+        int afterIndex = low;      // Closest after
+
+        // Handle edge cases: time before the first element or after the last
+        if (beforeIndex < 0) return afterIndex;
+        if (afterIndex >= times.length) return beforeIndex;
+
+        long beforeDiff = epochMillis - times[beforeIndex] * 1000;
+        long afterDiff = times[afterIndex] * 1000 - epochMillis;
+
+        return beforeDiff <= afterDiff ? beforeIndex : afterIndex;
+    }
+}
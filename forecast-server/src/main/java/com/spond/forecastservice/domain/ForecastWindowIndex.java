@@ -0,0 +1,102 @@
+package com.spond.forecastservice.domain;
+
+/**
+ * Range query structures over the columns of a {@link ForecastTimeseries}: prefix sums and counts for the mean and
+ * sparse tables for the minimum and maximum, so any range is answered in constant time after an
+ * {@code O(n log n)} build. Missing (NaN) values are skipped by every query.
+ */
+final class ForecastWindowIndex {
+
+    private final double[][] prefixSums;
+    private final int[][] prefixCounts;
+    private final float[][][] minTables;
+    private final float[][][] maxTables;
+
+    ForecastWindowIndex(final ForecastTimeseries timeseries) {
+        int fields = ForecastField.values().length;
+        prefixSums = new double[fields][];
+        prefixCounts = new int[fields][];
+        minTables = new float[fields][][];
+        maxTables = new float[fields][][];
+        for (ForecastField field : ForecastField.values()) {
+            if (timeseries.hasField(field)) {
+                build(timeseries, field);
+            }
+        }
+    }
+
+    /**
+     * @return the aggregate of the points {@code from} to {@code to}, both inclusive, or {@code null} if the field
+     * was not loaded or has no value in the range
+     */
+    ForecastAggregate aggregate(final ForecastField field, final int from, final int to) {
+        int ordinal = field.ordinal();
+        if (prefixSums[ordinal] == null) {
+            return null;
+        }
+        int count = prefixCounts[ordinal][to + 1] - prefixCounts[ordinal][from];
+        if (count == 0) {
+            return null;
+        }
+        double sum = prefixSums[ordinal][to + 1] - prefixSums[ordinal][from];
+        //Two overlapping power of two blocks cover the range, min and max are idempotent so the overlap is harmless
+        int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        int secondBlock = to - (1 << level) + 1;
+        float[] min = minTables[ordinal][level];
+        float[] max = maxTables[ordinal][level];
+        return new ForecastAggregate(
+            Math.min(min[from], min[secondBlock]),
+            Math.max(max[from], max[secondBlock]),
+            sum / count);
+    }
+
+    /**
+     * Estimated heap size in bytes of the structures built for one field of {@code size} points.
+     */
+    static long estimatedBytesPerField(final int size) {
+        int levels = size == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(size);
+        long bytes = ForecastTimeseries.arrayBytes(size + 1, Double.BYTES)
+            + ForecastTimeseries.arrayBytes(size + 1, Integer.BYTES);
+        long tableValues = 0;
+        for (int level = 0; level < levels; level++) {
+            tableValues += Math.max(0, size - (1 << level) + 1);
+        }
+        //A min and a max table, each an array of per level arrays
+        return bytes + 2 * (ForecastTimeseries.arrayBytes(levels, ForecastTimeseries.REFERENCE_BYTES)
+            + levels * ForecastTimeseries.arrayBytes(0, Float.BYTES) + tableValues * Float.BYTES);
+    }
+
+    private void build(final ForecastTimeseries timeseries, final ForecastField field) {
+        int size = timeseries.size();
+        int ordinal = field.ordinal();
+        double[] sums = new double[size + 1];
+        int[] counts = new int[size + 1];
+        int levels = size == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(size);
+        float[][] min = new float[levels][];
+        float[][] max = new float[levels][];
+        min[0] = new float[size];
+        max[0] = new float[size];
+        for (int i = 0; i < size; i++) {
+            float value = timeseries.value(field, i);
+            boolean present = !Float.isNaN(value);
+            sums[i + 1] = sums[i] + (present ? value : 0);
+            counts[i + 1] = counts[i] + (present ? 1 : 0);
+            min[0][i] = present ? value : Float.POSITIVE_INFINITY;
+            max[0][i] = present ? value : Float.NEGATIVE_INFINITY;
+        }
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int length = size - (1 << level) + 1;
+            min[level] = new float[length];
+            max[level] = new float[length];
+            for (int i = 0; i < length; i++) {
+                min[level][i] = Math.min(min[level - 1][i], min[level - 1][i + half]);
+                max[level][i] = Math.max(max[level - 1][i], max[level - 1][i + half]);
+            }
+        }
+        prefixSums[ordinal] = sums;
+        prefixCounts[ordinal] = counts;
+        minTables[ordinal] = min;
+        maxTables[ordinal] = max;
+    }
+}
@@ -0,0 +1,9 @@
+package com.spond.forecastservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventForecastDto(ForecastStatus status, ForecastDto forecast, String message) {
+}
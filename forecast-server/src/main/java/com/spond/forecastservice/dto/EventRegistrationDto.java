@@ -0,0 +1,13 @@
+package com.spond.forecastservice.dto;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @param prefetchTimes when the forecast of the event is going to be fetched or revalidated ahead of its start
+ */
+@Builder
+public record EventRegistrationDto(String id, List<Instant> prefetchTimes) {
+}
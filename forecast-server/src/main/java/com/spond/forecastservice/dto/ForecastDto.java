@@ -1,7 +1,13 @@
 package com.spond.forecastservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 
+/**
+ * @param window aggregates over the whole event, only set when requested
+ */
 @Builder
-public record ForecastDto(Double airTemperature, Double windSpeed) {
+public record ForecastDto(Double airTemperature,
+                          Double windSpeed,
+                          @JsonInclude(JsonInclude.Include.NON_NULL) ForecastWindowDto window) {
 }
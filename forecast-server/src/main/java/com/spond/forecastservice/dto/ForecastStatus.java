@@ -0,0 +1,10 @@
+package com.spond.forecastservice.dto;
+
+public enum ForecastStatus {
+    OK,
+    VALIDATION_ERROR,
+    UPSTREAM_ERROR,
+    UPSTREAM_TIMEOUT,
+    UPSTREAM_UNAVAILABLE,
+    INTERNAL_SERVER_ERROR
+}
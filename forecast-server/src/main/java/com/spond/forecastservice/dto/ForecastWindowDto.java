@@ -0,0 +1,18 @@
+package com.spond.forecastservice.dto;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+/**
+ * Aggregates over the forecast points from {@code from} to {@code to}, the points covered by the event. When no point
+ * falls within the event the point closest to its start is used.
+ */
+@Builder
+public record ForecastWindowDto(Instant from,
+                                Instant to,
+                                Double minAirTemperature,
+                                Double maxAirTemperature,
+                                Double meanAirTemperature,
+                                Double maxWindSpeed) {
+}
@@ -0,0 +1,163 @@
+package com.spond.forecastservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the forecast hot path and the MET api, registered once so recording is a plain counter or timer update.
+ */
+@Component
+public class ForecastMetrics {
+
+    public static final String CACHE_LOOKUPS = "forecast.cache.lookups";
+    public static final String CACHE_REVALIDATIONS = "forecast.cache.revalidations";
+    public static final String MET_REQUESTS = "forecast.met.requests";
+    public static final String MET_COALESCED = "forecast.met.coalesced";
+    public static final String MET_REJECTED = "forecast.met.rejected";
+    public static final String PEER_REQUESTS = "forecast.cluster.peer.requests";
+    public static final String FIND_FORECAST = "forecast.find";
+    public static final String VALIDATION_FAILURES = "forecast.validation.failures";
+
+    private final MeterRegistry registry;
+    private final Counter cacheHits;
+    private final Counter nearbyHits;
+    private final Counter staleHits;
+    private final Counter staleIfErrorHits;
+    private final Counter cacheMisses;
+    private final Counter expiredEntries;
+    private final Counter notModified;
+    private final Counter modified;
+    private final Counter coalesced;
+    private final Counter validationFailures;
+    private final Timer findForecast;
+    private final Timer findForecasts;
+
+    public ForecastMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        cacheHits = cacheLookups(registry, "hit");
+        nearbyHits = cacheLookups(registry, "nearby");
+        staleHits = cacheLookups(registry, "stale");
+        staleIfErrorHits = cacheLookups(registry, "stale_if_error");
+        cacheMisses = cacheLookups(registry, "miss");
+        expiredEntries = cacheLookups(registry, "expired");
+        notModified = Counter.builder(CACHE_REVALIDATIONS)
+            .description("Conditional MET requests by whether the cached forecast was still current")
+            .tag("result", "not_modified")
+            .register(registry);
+        modified = Counter.builder(CACHE_REVALIDATIONS)
+            .description("Conditional MET requests by whether the cached forecast was still current")
+            .tag("result", "modified")
+            .register(registry);
+        coalesced = Counter.builder(MET_COALESCED)
+            .description("Lookups that waited for a MET request already in flight instead of making their own")
+            .register(registry);
+        validationFailures = Counter.builder(VALIDATION_FAILURES)
+            .description("Events rejected by validation")
+            .register(registry);
+        findForecast = findForecastTimer(registry, "single");
+        findForecasts = findForecastTimer(registry, "batch");
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void nearbyHit() {
+        nearbyHits.increment();
+    }
+
+    public void staleHit() {
+        staleHits.increment();
+    }
+
+    public void staleIfErrorHit() {
+        staleIfErrorHits.increment();
+    }
+
+    /**
+     * A lookup that has to call MET, {@code expired} if there was a cached entry to revalidate.
+     */
+    public void cacheMiss(boolean expired) {
+        (expired ? expiredEntries : cacheMisses).increment();
+    }
+
+    public void revalidated(boolean wasModified) {
+        (wasModified ? modified : notModified).increment();
+    }
+
+    public void coalesced() {
+        coalesced.increment();
+    }
+
+    /**
+     * @param reason why the call was not made, {@code circuit_open} or {@code concurrency_limit}
+     */
+    public void metRejected(String reason) {
+        Counter.builder(MET_REJECTED)
+            .description("MET api calls rejected without calling upstream")
+            .tag("reason", reason)
+            .register(registry)
+            .increment();
+    }
+
+    public double coalescedCount() {
+        return coalesced.count();
+    }
+
+    public void validationFailure() {
+        validationFailures.increment();
+    }
+
+    /**
+     * @param status the http status code, or {@code timeout}/{@code error} if there was no response
+     */
+    public void metRequest(long startNanos, String status) {
+        //Statuses are a small bounded set, so looking the timer up per call only costs a map lookup
+        Timer.builder(MET_REQUESTS)
+            .description("Latency of MET api requests by response status")
+            .tag("status", status)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param result {@code hit} if the owning peer returned the entry, its http status code,
+     *               {@code format_mismatch} if it runs with another grid or other fields, or
+     *               {@code timeout}/{@code unreachable}/{@code error} if there was no usable response
+     */
+    public void peerRequest(long startNanos, String result) {
+        Timer.builder(PEER_REQUESTS)
+            .description("Latency of asking the owning peer for a cache entry by result")
+            .tag("result", result)
+            .register(registry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer findForecastTimer() {
+        return findForecast;
+    }
+
+    public Timer findForecastsTimer() {
+        return findForecasts;
+    }
+
+    private static Counter cacheLookups(MeterRegistry registry, String result) {
+        return Counter.builder(CACHE_LOOKUPS)
+            .description("Forecast lookups by how they were served")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static Timer findForecastTimer(MeterRegistry registry, String type) {
+        return Timer.builder(FIND_FORECAST)
+            .description("Latency of finding event forecasts")
+            .tag("type", type)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.spond.forecastservice.metrics;
+
+/**
+ * Stages of serving a forecast, timed per request by {@link StageTimer}. Stages can nest, {@link #MET} includes the
+ * {@link #PARSE} of the body streamed from the connection.
+ */
+public enum ForecastStage {
+
+    VALIDATION("validation", "Event validation"),
+    CACHE("cache", "Weather cache lookup"),
+    COALESCED("coalesced", "Waiting for a MET call in flight"),
+    PEER("peer", "Owning peer call"),
+    MET("met", "MET call"),
+    PARSE("parse", "MET response parsing"),
+    SEARCH("search", "Timeseries search"),
+    SERIALIZE("serialize", "Response serialization");
+
+    private final String metricName;
+    private final String description;
+
+    ForecastStage(String metricName, String description) {
+        this.metricName = metricName;
+        this.description = description;
+    }
+
+    /**
+     * @return the name of the stage in the {@code Server-Timing} header and in flight recordings
+     */
+    public String metricName() {
+        return metricName;
+    }
+
+    public String description() {
+        return description;
+    }
+}
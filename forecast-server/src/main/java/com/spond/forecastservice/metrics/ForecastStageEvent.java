@@ -0,0 +1,24 @@
+package com.spond.forecastservice.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a single {@link ForecastStage}, so a continuous recording shows where the time of every
+ * slow request went. Disabled events cost next to nothing, and no stack trace is taken when they are enabled.
+ */
+@Name(ForecastStageEvent.NAME)
+@Label("Forecast Stage")
+@Description("A stage of serving an event forecast")
+@Category({"Spond", "Forecast"})
+@StackTrace(false)
+class ForecastStageEvent extends jdk.jfr.Event {
+
+    static final String NAME = "com.spond.forecastservice.ForecastStage";
+
+    @Label("Stage")
+    String stage;
+}
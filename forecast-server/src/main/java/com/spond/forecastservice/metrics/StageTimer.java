@@ -0,0 +1,53 @@
+package com.spond.forecastservice.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Times one {@link ForecastStage}, from {@link #start(ForecastStage)} until {@link #stop()}. Every stage is committed
+ * as a {@link ForecastStageEvent} when flight recording is on, and added to the {@link StageTimings} of the request
+ * if one is bound to the thread. With neither, nothing is timed at all.
+ */
+public final class StageTimer {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(ForecastStageEvent.class);
+
+    //Handed out when there is nobody to report to
+    private static final StageTimer NONE = new StageTimer(null, null);
+
+    private final ForecastStage stage;
+    private final ForecastStageEvent event;
+    private final long startNanos;
+
+    private StageTimer(ForecastStage stage, ForecastStageEvent event) {
+        this.stage = stage;
+        this.event = event;
+        this.startNanos = System.nanoTime();
+        if (event != null) {
+            event.begin();
+        }
+    }
+
+    public static StageTimer start(ForecastStage stage) {
+        boolean recording = EVENT_TYPE.isEnabled();
+        if (!recording && StageTimings.current() == null) {
+            return NONE;
+        }
+        ForecastStageEvent event = null;
+        if (recording) {
+            event = new ForecastStageEvent();
+            event.stage = stage.metricName();
+        }
+        return new StageTimer(stage, event);
+    }
+
+    public void stop() {
+        if (this == NONE) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        if (event != null) {
+            event.commit();
+        }
+        StageTimings.record(stage, durationNanos);
+    }
+}
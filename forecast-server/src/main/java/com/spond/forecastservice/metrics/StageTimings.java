@@ -0,0 +1,76 @@
+package com.spond.forecastservice.metrics;
+
+import java.util.Locale;
+
+/**
+ * The {@link ForecastStage} durations of a single request, summed per stage. Timings are bound to the thread serving
+ * the request, stages that run on other threads, like the lookups of a batch, are only recorded as flight recorder
+ * events.
+ */
+public final class StageTimings {
+
+    private static final ForecastStage[] STAGES = ForecastStage.values();
+    private static final ThreadLocal<StageTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] durationNanos = new long[STAGES.length];
+    private final boolean[] recorded = new boolean[STAGES.length];
+
+    private StageTimings() {
+    }
+
+    /**
+     * Starts collecting the timings of the current thread, until {@link #unbind()}.
+     */
+    public static StageTimings bind() {
+        StageTimings timings = new StageTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the timings bound to the current thread, or {@code null} if there are none
+     */
+    public static StageTimings current() {
+        return CURRENT.get();
+    }
+
+    static void record(ForecastStage stage, long nanos) {
+        StageTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.durationNanos[stage.ordinal()] += nanos;
+            timings.recorded[stage.ordinal()] = true;
+        }
+    }
+
+    /**
+     * @return the duration of the stage so far, or {@code -1} if it did not run
+     */
+    public long durationNanos(ForecastStage stage) {
+        return recorded[stage.ordinal()] ? durationNanos[stage.ordinal()] : -1;
+    }
+
+    /**
+     * Every stage that ran and the total time since the timings were bound, in milliseconds, as the value of a
+     * {@code Server-Timing} header, e.g. {@code cache;dur=0.015;desc="Weather cache lookup", total;dur=0.412}.
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(256);
+        for (ForecastStage stage : STAGES) {
+            if (recorded[stage.ordinal()]) {
+                appendMetric(header, stage.metricName(), durationNanos[stage.ordinal()])
+                    .append(";desc=\"").append(stage.description()).append('"')
+                    .append(", ");
+            }
+        }
+        return appendMetric(header, "total", System.nanoTime() - startNanos).toString();
+    }
+
+    private static StringBuilder appendMetric(StringBuilder header, String name, long nanos) {
+        return header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0));
+    }
+}
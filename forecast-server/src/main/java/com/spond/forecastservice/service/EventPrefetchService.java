@@ -0,0 +1,163 @@
+package com.spond.forecastservice.service;
+
+import com.spond.forecastservice.config.PrefetchProperties;
+import com.spond.forecastservice.domain.CapacityExceededException;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.dto.EventRegistrationDto;
+import com.spond.forecastservice.service.external.MetApiService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of upcoming events whose forecasts are prefetched into the weather cache at the configured lead times
+ * before they start, so their forecast lookups are served from the cache.
+ * <p>
+ * Prefetches are kept in a skip list ordered by due time. Every run only looks at the due head of the list and
+ * starts at most {@code forecast.prefetch.max-per-interval} of them, on top of the per event spread this keeps bulk
+ * registrations from turning into bursts of upstream calls.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class EventPrefetchService implements SchedulingConfigurer {
+
+    private final MetApiService metApiService;
+    private final PrefetchProperties prefetchProperties;
+    @Qualifier("applicationTaskExecutor")
+    private final Executor prefetchExecutor;
+    private final ConcurrentMap<String, Registration> events = new ConcurrentHashMap<>();
+    private final NavigableSet<PrefetchTask> tasks = new ConcurrentSkipListSet<>(
+        Comparator.comparingLong(PrefetchTask::dueAt).thenComparingLong(PrefetchTask::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Registers an upcoming event. Lead times that have already passed are collapsed into a single prefetch, started
+     * by the next run.
+     */
+    public EventRegistrationDto register(final Event event) {
+        ForecastService.validate(event);
+        if (events.size() >= prefetchProperties.getMaxEvents()) {
+            //Ended events are forgotten by the next run, a slot may be free again by then
+            throw new CapacityExceededException("At most " + prefetchProperties.getMaxEvents()
+                + " upcoming events can be registered!", prefetchProperties.getInterval());
+        }
+        String id = UUID.randomUUID().toString();
+        List<PrefetchTask> eventTasks = new ArrayList<>();
+        List<Instant> prefetchTimes = new ArrayList<>();
+        if (prefetchProperties.isEnabled()) {
+            long now = System.currentTimeMillis();
+            long start = event.startTime().toEpochMilli();
+            long spreadMillis = prefetchProperties.getSpread().toMillis();
+            long offset = spreadMillis > 0 ? Math.floorMod(id.hashCode(), spreadMillis) : 0;
+            boolean scheduledNow = false;
+            List<Duration> leadTimes = prefetchProperties.getLeadTimes().stream()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+            for (Duration leadTime : leadTimes) {
+                long dueAt = start - leadTime.toMillis() - offset;
+                if (dueAt <= now) {
+                    if (scheduledNow) {
+                        continue;
+                    }
+                    scheduledNow = true;
+                    dueAt = now;
+                }
+                eventTasks.add(new PrefetchTask(dueAt, sequence.incrementAndGet(), id, false));
+                prefetchTimes.add(Instant.ofEpochMilli(dueAt));
+            }
+        }
+        //The event is forgotten once it has ended
+        eventTasks.add(new PrefetchTask(event.endTime().toEpochMilli(), sequence.incrementAndGet(), id, true));
+        //Registered before its tasks are scheduled, so a run never finds a due task without its event
+        events.put(id, new Registration(event, eventTasks));
+        tasks.addAll(eventTasks);
+
+        return EventRegistrationDto.builder()
+            .id(id)
+            .prefetchTimes(prefetchTimes)
+            .build();
+    }
+
+    /**
+     * Forgets the event and cancels its remaining prefetches.
+     */
+    public void unregister(final String id) {
+        Registration registration = events.remove(id);
+        if (registration != null) {
+            registration.tasks().forEach(tasks::remove);
+        }
+    }
+
+    public int getRegisteredEventCount() {
+        return events.size();
+    }
+
+    int getScheduledTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Starts the prefetches that are due, at most {@code forecast.prefetch.max-per-interval} of them.
+     */
+    public void prefetchDue() {
+        long now = System.currentTimeMillis();
+        int started = 0;
+        Iterator<PrefetchTask> due = tasks.headSet(new PrefetchTask(now, Long.MAX_VALUE, null, false), true).iterator();
+        while (due.hasNext() && started < prefetchProperties.getMaxPerInterval()) {
+            PrefetchTask task = due.next();
+            due.remove();
+            if (task.expiry()) {
+                events.remove(task.eventId());
+                continue;
+            }
+            Registration registration = events.get(task.eventId());
+            if (registration == null) {
+                continue;
+            }
+            Event event = registration.event();
+            started++;
+            prefetchExecutor.execute(() -> prefetch(event));
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (prefetchProperties.isEnabled()) {
+            taskRegistrar.addFixedDelayTask(this::prefetchDue, prefetchProperties.getInterval());
+        }
+    }
+
+    private void prefetch(Event event) {
+        try {
+            metApiService.prefetch(event.latitude(), event.longitude());
+        }
+        catch (RuntimeException e) {
+            //The next lead time, or refresh ahead, tries again
+            log.warn("Prefetching the forecast of ({}, {}) failed: {}", event.latitude(), event.longitude(), e.getMessage());
+        }
+    }
+
+    private record Registration(Event event, List<PrefetchTask> tasks) {
+    }
+
+    private record PrefetchTask(long dueAt, long sequence, String eventId, boolean expiry) {
+    }
+}
@@ -1,22 +1,42 @@
 package com.spond.forecastservice.service;
 
+import com.spond.forecastservice.config.BatchProperties;
 import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.ForecastAggregate;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
 import com.spond.forecastservice.domain.InvalidEventException;
+import com.spond.forecastservice.dto.EventForecastDto;
 import com.spond.forecastservice.dto.ForecastDto;
-import com.spond.forecastservice.externalmodel.Data;
-import com.spond.forecastservice.externalmodel.Timeseries;
-import com.spond.forecastservice.externalmodel.WeatherData;
+import com.spond.forecastservice.dto.ForecastStatus;
+import com.spond.forecastservice.dto.ForecastWindowDto;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.metrics.ForecastStage;
+import com.spond.forecastservice.metrics.StageTimer;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiException;
 import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.MetApiUnavailableException;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import com.spond.forecastservice.service.external.resilience.Deadline;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Slf4j
@@ -24,61 +44,206 @@ import java.util.List;
 public class ForecastService {
 
     private final MetApiService metApiService;
+    private final LocationGrid locationGrid;
+    private final BatchProperties batchProperties;
+    private final ForecastMetrics forecastMetrics;
+    @Qualifier("applicationTaskExecutor")
+    private final Executor taskExecutor;
 
     public ForecastDto findForecast(final Event event) {
-        validate(event);
+        return forecastMetrics.findForecastTimer().record(() -> toForecast(lookupForecast(event), event, false));
+    }
 
-        ResponseEntity<WeatherData> response = metApiService.getLocationForecast(event.latitude(), event.longitude());
-        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-            throw new RuntimeException("Failed to retrieve forecast!");
+    /**
+     * Like {@link #findForecast(Event)}, additionally aggregating the forecast over the whole event window.
+     */
+    public ForecastDto findWindowForecast(final Event event) {
+        return forecastMetrics.findForecastTimer().record(() -> toForecast(lookupForecast(event), event, true));
+    }
+
+    /**
+     * First half of {@link #findForecast(Event)}: validates the event and looks up the cached forecast of its
+     * location, so callers can check whether a client's copy is still current before building the response.
+     * Callers serving a single forecast record both halves under {@link ForecastMetrics#findForecastTimer()}.
+     */
+    public CachedWeatherData lookupForecast(final Event event) {
+        StageTimer validation = StageTimer.start(ForecastStage.VALIDATION);
+        try {
+            validate(event);
+        }
+        catch (InvalidEventException e) {
+            forecastMetrics.validationFailure();
+            throw e;
         }
-        //TODO:check for null before get
-        List<Timeseries> timeseries = response.getBody().getProperties().getTimeseries();
-        Data closestForecastData = findClosestForecastData(timeseries, event.startTime());
+        finally {
+            validation.stop();
+        }
+        return requireForecast(metApiService.getLocationForecast(event.latitude(), event.longitude()));
+    }
 
-        return ForecastDto.builder()
-            .windSpeed(closestForecastData.getInstant().getDetails().getWind_speed())
-            .airTemperature(closestForecastData.getInstant().getDetails().getAir_temperature())
-            .build();
+    /**
+     * Second half of {@link #findForecast(Event)}: picks the values for the event out of its location's forecast.
+     */
+    public ForecastDto toForecast(final CachedWeatherData cachedData, final Event event, final boolean includeWindow) {
+        ForecastTimeseries timeseries = requireForecast(cachedData).timeseries();
+        StageTimer search = StageTimer.start(ForecastStage.SEARCH);
+        try {
+            //The timeseries is already sorted by timestamp, so we can rely on the index search
+            int closestIndex = timeseries.findClosestIndex(event.startTime());
+
+            return ForecastDto.builder()
+                .windSpeed(timeseries.valueOrNull(ForecastField.WIND_SPEED, closestIndex))
+                .airTemperature(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, closestIndex))
+                .window(includeWindow ? toWindow(timeseries, event, closestIndex) : null)
+                .build();
+        }
+        finally {
+            search.stop();
+        }
     }
 
-    //This method is only added to make testing easier
-    protected static Instant findClosestTime(final List<Instant> times, final Instant startTime) {
-        return times.get(findClosestTimeIndex(times, startTime));
+    /**
+     * Finds the forecast of every event, in request order. Events are validated one by one so a single invalid event
+     * does not fail the batch, and events sharing a cache key are served by a single lookup. Distinct locations are
+     * looked up concurrently, at most {@code forecast.batch.parallelism} at a time.
+     */
+    public List<EventForecastDto> findForecasts(final List<Event> events) {
+        return forecastMetrics.findForecastsTimer().record(() -> findForecasts(events, false));
     }
 
-    private static Data findClosestForecastData(final List<Timeseries> timeseries, final Instant startTime) {
-        List<Instant> times = timeseries.stream().map(Timeseries::getTime).toList();
-        //Rely on the index search
-        return timeseries.get(findClosestTimeIndex(times, startTime)).getData();
+    /**
+     * Like {@link #findForecasts(List)}, additionally aggregating every forecast over its event window.
+     */
+    public List<EventForecastDto> findWindowForecasts(final List<Event> events) {
+        return forecastMetrics.findForecastsTimer().record(() -> findForecasts(events, true));
     }
 
-    //Note the list is returned already sorted by timestamp, so we should not need to reorder the collection
-    private static int findClosestTimeIndex(final List<Instant> times, final Instant startTime) {
-        int index = Collections.binarySearch(times, startTime);
+    private List<EventForecastDto> findForecasts(final List<Event> events, final boolean includeWindow) {
+        if (events.size() > batchProperties.getMaxSize()) {
+            throw new InvalidEventException("A batch can contain at most " + batchProperties.getMaxSize() + " events!");
+        }
+        EventForecastDto[] results = new EventForecastDto[events.size()];
+        Map<Long, List<Integer>> eventsByLocation = new LinkedHashMap<>();
+        StageTimer validation = StageTimer.start(ForecastStage.VALIDATION);
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            try {
+                validate(event);
+            }
+            catch (InvalidEventException e) {
+                forecastMetrics.validationFailure();
+                results[i] = failed(ForecastStatus.VALIDATION_ERROR, e.getMessage());
+                continue;
+            }
+            eventsByLocation.computeIfAbsent(locationGrid.toKey(event.latitude(), event.longitude()),
+                key -> new ArrayList<>()).add(i);
+        }
+        validation.stop();
+
+        //Lookups run on the executor, they take the deadline of the request along
+        Deadline deadline = Deadline.current();
+        Semaphore permits = new Semaphore(batchProperties.getParallelism());
+        List<CompletableFuture<Void>> lookups = new ArrayList<>(eventsByLocation.size());
+        for (List<Integer> indices : eventsByLocation.values()) {
+            Event location = events.get(indices.get(0));
+            permits.acquireUninterruptibly();
+            CompletableFuture<CachedWeatherData> lookup;
+            try {
+                lookup = CompletableFuture.supplyAsync(() -> Deadline.call(deadline,
+                    () -> metApiService.getLocationForecast(location.latitude(), location.longitude())), taskExecutor);
+            }
+            catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            lookups.add(lookup
+                .whenComplete((response, error) -> permits.release())
+                .handle((response, error) -> {
+                    for (int index : indices) {
+                        results[index] = toResult(response, error, events.get(index), includeWindow);
+                    }
+                    return null;
+                }));
+        }
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+        return Arrays.asList(results);
+    }
 
-        if (index >= 0) {
-            return index; // Exact match found
+    private EventForecastDto toResult(final CachedWeatherData response, final Throwable error, final Event event,
+                                      final boolean includeWindow) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof MetApiTimeoutException) {
+            return failed(ForecastStatus.UPSTREAM_TIMEOUT, cause.getMessage());
         }
+        if (cause instanceof MetApiUnavailableException) {
+            return failed(ForecastStatus.UPSTREAM_UNAVAILABLE, cause.getMessage());
+        }
+        if (cause instanceof MetApiException) {
+            return failed(ForecastStatus.UPSTREAM_ERROR, cause.getMessage());
+        }
+        if (cause != null) {
+            log.error(cause.getMessage(), cause);
+            return failed(ForecastStatus.INTERNAL_SERVER_ERROR, cause.getMessage());
+        }
+        try {
+            return EventForecastDto.builder()
+                .status(ForecastStatus.OK)
+                .forecast(toForecast(response, event, includeWindow))
+                .build();
+        }
+        catch (RuntimeException e) {
+            return failed(ForecastStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private static EventForecastDto failed(final ForecastStatus status, final String message) {
+        return EventForecastDto.builder()
+            .status(status)
+            .message(message)
+            .build();
+    }
 
-        int insertionPoint = -(index + 1);
-        int beforeIndex = insertionPoint - 1; // Closest before
-        int afterIndex = insertionPoint;     // Closest after
+    private static CachedWeatherData requireForecast(final CachedWeatherData cachedData) {
+        if (cachedData == null || cachedData.timeseries().isEmpty()) {
+            throw new RuntimeException("Failed to retrieve forecast!");
+        }
+        return cachedData;
+    }
 
-        // Handle edge cases: startTime before the first element or after the last
-        if (beforeIndex < 0) return afterIndex;
-        if (afterIndex >= times.size()) return beforeIndex;
+    private static ForecastWindowDto toWindow(final ForecastTimeseries timeseries, final Event event,
+                                              final int closestIndex) {
+        int from = timeseries.findFirstIndexFrom(event.startTime());
+        int to = timeseries.findLastIndexUntil(event.endTime());
+        if (from > to) {
+            //Short events can fall between two points, fall back to the point the forecast itself is based on
+            from = closestIndex;
+            to = closestIndex;
+        }
+        ForecastAggregate temperature = timeseries.aggregate(ForecastField.AIR_TEMPERATURE, from, to);
+        ForecastAggregate windSpeed = timeseries.aggregate(ForecastField.WIND_SPEED, from, to);
 
-        // Calculate the difference in milliseconds and return the index of the closes value of the startTime of interest
-        long beforeDiff = Math.abs(times.get(beforeIndex).toEpochMilli() - startTime.toEpochMilli());
-        long afterDiff = Math.abs(times.get(afterIndex).toEpochMilli() - startTime.toEpochMilli());
+        return ForecastWindowDto.builder()
+            .from(timeseries.time(from))
+            .to(timeseries.time(to))
+            .minAirTemperature(temperature != null ? temperature.min() : null)
+            .maxAirTemperature(temperature != null ? temperature.max() : null)
+            .meanAirTemperature(temperature != null ? temperature.mean() : null)
+            .maxWindSpeed(windSpeed != null ? windSpeed.max() : null)
+            .build();
+    }
 
-        return beforeDiff <= afterDiff ? beforeIndex : afterIndex;
+    //This method is only added to make testing easier
+    protected static Instant findClosestTime(final List<Instant> times, final Instant startTime) {
+        long[] epochSeconds = times.stream().mapToLong(Instant::getEpochSecond).toArray();
+        return times.get(ForecastTimeseries.findClosestIndex(epochSeconds, startTime.toEpochMilli()));
     }
 
     //for any event that starts in the next 7 days and has a location set
     //TODO: add validation for valid coordinates + tests
-    private void validate(final Event event) {
+    static void validate(final Event event) {
+        if (event.startTime() == null || event.endTime() == null) {
+            throw new InvalidEventException("Event must have a start and end time!");
+        }
         Instant now = Instant.now();
         // Ensure the event has not already ended
         if (event.endTime().isBefore(now)) {
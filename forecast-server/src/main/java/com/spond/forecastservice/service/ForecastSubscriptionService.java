@@ -0,0 +1,231 @@
+package com.spond.forecastservice.service;
+
+import com.spond.forecastservice.config.SubscriptionProperties;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.CapacityExceededException;
+import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.WeatherDataUpdatedEvent;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams the forecast of an event to clients that follow it, instead of having them poll. A stream gets the current
+ * forecast when it is opened and a new one whenever a cache update changes the values for its event.
+ * <p>
+ * Streams are grouped by cache key, so however many clients follow a location it is kept fresh by a single refresh per
+ * interval, and every cache update is turned into pushes for that location's streams only.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class ForecastSubscriptionService implements SchedulingConfigurer, MeterBinder {
+
+    public static final String SUBSCRIPTIONS = "forecast.subscriptions";
+    static final String FORECAST_EVENT = "forecast";
+
+    private final ForecastService forecastService;
+    private final MetApiService metApiService;
+    private final LocationGrid locationGrid;
+    private final SubscriptionProperties subscriptionProperties;
+    @Qualifier("applicationTaskExecutor")
+    private final Executor pushExecutor;
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptionsByKey = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    /**
+     * Opens a stream for the event. The event is validated and its current forecast looked up before the stream is
+     * opened, so invalid events and upstream failures are answered like a plain forecast request. The slot of the
+     * stream is taken before the lookup, so clients turned away by a full registry cost no upstream call.
+     */
+    public SseEmitter subscribe(final Event event, final boolean includeWindow) {
+        ForecastService.validate(event);
+        if (subscriptionCount.incrementAndGet() > subscriptionProperties.getMaxSubscriptions()) {
+            subscriptionCount.decrementAndGet();
+            //Streams close as their events end, a slot may be free again by the next refresh interval
+            throw new CapacityExceededException("At most " + subscriptionProperties.getMaxSubscriptions()
+                + " forecast streams can be open!", subscriptionProperties.getInterval());
+        }
+        CachedWeatherData cachedData;
+        try {
+            cachedData = forecastService.lookupForecast(event);
+        }
+        catch (RuntimeException e) {
+            subscriptionCount.decrementAndGet();
+            throw e;
+        }
+
+        //The stream ends with the event, the client has nothing left to follow
+        Duration untilEnd = Duration.between(Instant.now(), event.endTime());
+        Duration timeout = untilEnd.compareTo(subscriptionProperties.getMaxDuration()) < 0
+            ? untilEnd
+            : subscriptionProperties.getMaxDuration();
+        long key = locationGrid.toKey(event.latitude(), event.longitude());
+        Subscription subscription = new Subscription(key, event, includeWindow, new SseEmitter(Math.max(1, timeout.toMillis())));
+        subscription.emitter.onCompletion(() -> remove(subscription));
+        subscription.emitter.onTimeout(subscription.emitter::complete);
+        subscription.emitter.onError(error -> remove(subscription));
+        subscriptionsByKey.compute(key, (k, subscriptions) -> {
+            Set<Subscription> keySubscriptions = subscriptions != null ? subscriptions : ConcurrentHashMap.newKeySet();
+            keySubscriptions.add(subscription);
+            return keySubscriptions;
+        });
+
+        push(subscription, cachedData);
+        return subscription.emitter;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    /**
+     * Hands the pushes for the updated location off to the executor, the cache update itself is not held up by slow
+     * clients.
+     */
+    @EventListener
+    public void onWeatherDataUpdated(final WeatherDataUpdatedEvent update) {
+        Set<Subscription> subscriptions = subscriptionsByKey.get(update.key());
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+        pushExecutor.execute(() -> subscriptions.forEach(subscription -> push(subscription, update.data())));
+    }
+
+    /**
+     * Keeps the location of every open stream fresh, so updates keep coming without any client polling, and sends a
+     * keep-alive comment on every stream to let proxies know it is in use and to find streams whose client is gone.
+     */
+    public void refreshSubscribed() {
+        subscriptionsByKey.forEach((key, subscriptions) -> {
+            Subscription any = subscriptions.stream().findAny().orElse(null);
+            if (any == null) {
+                return;
+            }
+            pushExecutor.execute(() -> {
+                try {
+                    metApiService.prefetch(any.event.latitude(), any.event.longitude());
+                }
+                catch (RuntimeException e) {
+                    //Streams keep their last forecast, the next interval tries again
+                    log.warn("Refreshing the forecast of cache entry {} failed: {}", key, e.getMessage());
+                }
+                subscriptions.forEach(this::keepAlive);
+            });
+        });
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::refreshSubscribed, subscriptionProperties.getInterval());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(SUBSCRIPTIONS, subscriptionCount, AtomicInteger::get)
+            .description("Open forecast streams")
+            .register(registry);
+    }
+
+    /**
+     * Sends the forecast of the subscription's event, unless it equals the forecast the client already got.
+     */
+    private void push(Subscription subscription, CachedWeatherData cachedData) {
+        ForecastDto forecast;
+        try {
+            forecast = forecastService.toForecast(cachedData, subscription.event, subscription.includeWindow);
+        }
+        catch (RuntimeException e) {
+            log.warn("Building the forecast of cache entry {} failed: {}", subscription.key, e.getMessage());
+            return;
+        }
+        subscription.lock.lock();
+        try {
+            if (forecast.equals(subscription.lastSent)) {
+                return;
+            }
+            subscription.emitter.send(SseEmitter.event()
+                .name(FORECAST_EVENT)
+                .id(Long.toHexString(cachedData.timeseries().contentHash()))
+                .data(forecast, MediaType.APPLICATION_JSON));
+            subscription.lastSent = forecast;
+        }
+        catch (IOException | IllegalStateException e) {
+            //The client is gone or the stream already completed
+            closed(subscription);
+        }
+        finally {
+            subscription.lock.unlock();
+        }
+    }
+
+    private void keepAlive(Subscription subscription) {
+        subscription.lock.lock();
+        try {
+            subscription.emitter.send(SseEmitter.event().comment("keep-alive"));
+        }
+        catch (IOException | IllegalStateException e) {
+            closed(subscription);
+        }
+        finally {
+            subscription.lock.unlock();
+        }
+    }
+
+    private void closed(Subscription subscription) {
+        remove(subscription);
+        subscription.emitter.complete();
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptionsByKey.computeIfPresent(subscription.key, (key, subscriptions) -> {
+            if (subscriptions.remove(subscription)) {
+                subscriptionCount.decrementAndGet();
+            }
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    /**
+     * Identity based, two clients following the same event are two subscriptions. Sends to the emitter are
+     * serialized by {@code lock}, which also guards {@code lastSent}.
+     */
+    private static final class Subscription {
+
+        private final long key;
+        private final Event event;
+        private final boolean includeWindow;
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private ForecastDto lastSent;
+
+        private Subscription(long key, Event event, boolean includeWindow, SseEmitter emitter) {
+            this.key = key;
+            this.event = event;
+            this.includeWindow = includeWindow;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -1,10 +1,34 @@
 package com.spond.forecastservice.service.external;
 
-import com.spond.forecastservice.externalmodel.WeatherData;
+import com.spond.forecastservice.domain.ForecastTimeseries;
 import lombok.Builder;
 
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
-@Builder
-public record CachedWeatherData(WeatherData data, Instant expiresAt, String lastModified) {
+/**
+ * @param lastModifiedMillis {@link #lastModified()} in epoch millis, or {@code -1} if it is missing or not a valid
+ * http date. Parsed once when the entry is built, it is read on every forecast request.
+ */
+public record CachedWeatherData(ForecastTimeseries timeseries, Instant expiresAt, String lastModified,
+                                long lastModifiedMillis) {
+
+    @Builder
+    public CachedWeatherData(ForecastTimeseries timeseries, Instant expiresAt, String lastModified) {
+        this(timeseries, expiresAt, lastModified, parseHttpDate(lastModified));
+    }
+
+    private static long parseHttpDate(String httpDate) {
+        if (httpDate == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        }
+        catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
 }
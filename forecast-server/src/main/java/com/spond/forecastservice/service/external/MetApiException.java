@@ -0,0 +1,10 @@
+package com.spond.forecastservice.service.external;
+
+/**
+ * The MET api could not be reached or answered with an error.
+ */
+public class MetApiException extends RuntimeException {
+    public MetApiException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
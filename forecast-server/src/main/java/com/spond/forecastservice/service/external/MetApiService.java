@@ -1,22 +1,55 @@
 package com.spond.forecastservice.service.external;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import com.spond.forecastservice.externalmodel.WeatherData;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.MetClientHttpRequestFactory;
+import com.spond.forecastservice.config.MetClientHttpRequestFactory.CallHandle;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.metrics.ForecastStage;
+import com.spond.forecastservice.metrics.StageTimer;
+import com.spond.forecastservice.service.external.cluster.PeerCacheClient;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import com.spond.forecastservice.service.external.resilience.AimdConcurrencyLimiter;
+import com.spond.forecastservice.service.external.resilience.CircuitBreaker;
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import com.spond.forecastservice.service.external.resilience.HedgePolicy;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 @Service
 @AllArgsConstructor
@@ -24,64 +57,526 @@ import java.time.temporal.ChronoUnit;
 public class MetApiService {
 
     public static final String USER_AGENT_VALUE = "spondWeatherForecast-MA/0.0.1 (oleg.topchiy@spond.teamtailor-mail.com)";
-    public static final String URL_PATTERN = "https://api.met.no/weatherapi/locationforecast/2.0/compact?lat=%f&lon=%f";
 
     private final RestTemplate restTemplate;
-    private final Cache<String, CachedWeatherData> weatherDataCache;
+    private final Cache<Long, CachedWeatherData> weatherDataCache;
+    private final LocationGrid locationGrid;
+    private final CachedLocationIndex cachedLocationIndex;
+    private final MetForecastParser metForecastParser;
+    private final MetApiProperties metApiProperties;
+    private final WeatherCacheProperties weatherCacheProperties;
+    private final ForecastMetrics forecastMetrics;
+    private final AimdConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgePolicy hedgePolicy;
+    private final PeerCacheClient peerCacheClient;
+    //Small copies of entries owned by peers, kept apart so every replica does not cache the whole cluster's locations
+    @Qualifier("peerCopyCache")
+    private final Cache<Long, CachedWeatherData> peerCopyCache;
+    private final ApplicationEventPublisher eventPublisher;
+    @Qualifier("applicationTaskExecutor")
+    private final Executor refreshExecutor;
+    //One upstream call per cache key, every concurrent caller for the same key waits on the same future
+    private final ConcurrentMap<Long, CompletableFuture<CachedWeatherData>> inFlightRequests = new ConcurrentHashMap<>();
+    //Last read of every key, in epoch millis, used to only refresh ahead the entries users actually look at
+    private final ConcurrentMap<Long, Long> lastAccess = new ConcurrentHashMap<>();
 
-    public ResponseEntity<WeatherData> getLocationForecast(final double latitude, final double longitude) {
+    /**
+     * @throws MetApiTimeoutException     if the downstream call timed out
+     * @throws MetApiUnavailableException if the downstream call was rejected by the circuit breaker or concurrency limit
+     * @throws MetApiException            if the downstream call failed for any other reason
+     */
+    public CachedWeatherData getLocationForecast(final double latitude, final double longitude) {
+        long key = locationGrid.toKey(latitude, longitude);
+        StageTimer cacheLookup = StageTimer.start(ForecastStage.CACHE);
+        // Check if data is in cache
+        CachedWeatherData cachedData = getCached(key);
+        if (isValid(cachedData)) {
+            cacheLookup.stop();
+            // Return cached data if valid
+            log.debug("Returning data from cache!!");
+            forecastMetrics.cacheHit();
+            recordAccess(key);
+            return cachedData;
+        }
+        // Otherwise fall back to a fresh forecast of a cached location close enough to this one
+        CachedWeatherData nearbyData = findNearbyCachedData(latitude, longitude);
+        cacheLookup.stop();
+        if (nearbyData != null) {
+            log.debug("Returning data of a nearby location from cache!!");
+            forecastMetrics.nearbyHit();
+            return nearbyData;
+        }
+        return getExpiredForecast(key, cachedData, true);
+    }
+
+    /**
+     * Whether a lookup of the location would be answered from the cache, without calling MET or a peer. Reads the
+     * cache without counting towards its statistics.
+     */
+    public boolean isCached(final double latitude, final double longitude) {
+        long key = locationGrid.toKey(latitude, longitude);
+        CachedWeatherData cachedData = fresher(weatherDataCache.asMap().get(key), peerCopyCache.asMap().get(key));
+        return isValid(cachedData) || isStaleWhileRevalidate(cachedData)
+            || findNearbyCachedData(latitude, longitude) != null;
+    }
+
+    /**
+     * Returns the forecast of a location key this replica owns in the shared cache tier, to be served to its peers.
+     * Unlike {@link #getLocationForecast(double, double)} it never asks another peer, so replicas that disagree on
+     * the owner cannot forward a key in circles.
+     *
+     * @throws MetApiTimeoutException     if the downstream call timed out
+     * @throws MetApiUnavailableException if the downstream call was rejected by the circuit breaker or concurrency limit
+     * @throws MetApiException            if the downstream call failed for any other reason
+     */
+    public CachedWeatherData getOwnedForecast(final long key) {
+        StageTimer cacheLookup = StageTimer.start(ForecastStage.CACHE);
+        CachedWeatherData cachedData = weatherDataCache.getIfPresent(key);
+        cacheLookup.stop();
+        if (isValid(cachedData)) {
+            log.debug("Returning data from cache to a peer!!");
+            forecastMetrics.cacheHit();
+            recordAccess(key);
+            return cachedData;
+        }
+        return getExpiredForecast(key, cachedData, false);
+    }
+
+    private CachedWeatherData getExpiredForecast(long key, CachedWeatherData cachedData, boolean askOwner) {
+        // An entry that expired only recently is still served, and revalidated off the request path
+        if (isStaleWhileRevalidate(cachedData)) {
+            log.debug("Returning stale data from cache while revalidating!!");
+            forecastMetrics.staleHit();
+            recordAccess(key);
+            refreshInBackground(key);
+            return cachedData;
+        }
+        forecastMetrics.cacheMiss(cachedData != null);
         try {
-            String url = buildRequestUrl(latitude, longitude);
-            // Check if data is in cache
-            CachedWeatherData cachedData = weatherDataCache.getIfPresent(url);
-            if (cachedData != null && cachedData.expiresAt().isAfter(Instant.now())) {
-                // Return cached data if valid
-                log.info("Returning data from cache!!");
-                return ResponseEntity.ok(cachedData.data());
+            return makeCoalescedApiCall(key, data -> !isValid(data), askOwner);
+        }
+        catch (MetApiException e) {
+            // During upstream trouble an expired forecast is still better than none
+            if (isStaleIfError(cachedData)) {
+                log.debug("Returning stale data from cache, calling downstream failed: {}", e.getMessage());
+                forecastMetrics.staleIfErrorHit();
+                return cachedData;
             }
-            return makeApiCall(url, cachedData);
+            throw e;
         }
-        catch (Exception e) {
-            log.error(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+    }
+
+    /**
+     * Makes sure the location's entry is cached and not about to expire, fetching or revalidating it otherwise. The
+     * access is recorded so refresh ahead keeps the entry fresh for the rest of the access window.
+     *
+     * @throws MetApiTimeoutException if the downstream call timed out
+     * @throws MetApiException        if the downstream call failed for any other reason
+     */
+    public void prefetch(final double latitude, final double longitude) {
+        long key = locationGrid.toKey(latitude, longitude);
+        recordAccess(key);
+        long now = System.currentTimeMillis();
+        makeCoalescedApiCall(key, data -> data == null || isDueForRefresh(key, data, now), true);
+    }
+
+    /**
+     * Revalidates in the background every entry that was read within the access window and gets close to expiring.
+     * Entries that were not read recently, or are no longer cached, are forgotten.
+     */
+    public void refreshAhead() {
+        WeatherCacheProperties.Refresh refresh = weatherCacheProperties.getRefresh();
+        long now = System.currentTimeMillis();
+        long accessedAfter = now - refresh.getAccessWindow().toMillis();
+        lastAccess.forEach((key, accessedAt) -> {
+            CachedWeatherData cachedData = weatherDataCache.asMap().get(key);
+            if (cachedData == null || accessedAt < accessedAfter) {
+                lastAccess.remove(key, accessedAt);
+            }
+            else if (isDueForRefresh(key, cachedData, now)) {
+                refreshInBackground(key);
+            }
+        });
+    }
+
+    /**
+     * Number of callers that did not call the downstream api themselves but waited for a call already in flight.
+     */
+    public long getCoalescedRequestCount() {
+        return (long) forecastMetrics.coalescedCount();
+    }
+
+    private CachedWeatherData getCached(long key) {
+        return fresher(weatherDataCache.getIfPresent(key), peerCopyCache.getIfPresent(key));
+    }
+
+    // A key can be in both caches after its owner changed or could not be reached, the later expiry is the newer data
+    private static CachedWeatherData fresher(CachedWeatherData cachedData, CachedWeatherData peerCopy) {
+        if (peerCopy == null) {
+            return cachedData;
         }
+        return cachedData == null || peerCopy.expiresAt().isAfter(cachedData.expiresAt()) ? peerCopy : cachedData;
     }
 
-    private ResponseEntity<WeatherData> makeApiCall(String url, CachedWeatherData cachedData) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("User-Agent", USER_AGENT_VALUE);
-        if (cachedData != null && cachedData.lastModified() != null) {
-            headers.add("If-Modified-Since", cachedData.lastModified());
+    private CachedWeatherData findNearbyCachedData(double latitude, double longitude) {
+        Long nearbyKey = cachedLocationIndex.findNearest(latitude, longitude,
+            candidate -> isValid(weatherDataCache.getIfPresent(candidate)));
+        return nearbyKey != null ? weatherDataCache.getIfPresent(nearbyKey) : null;
+    }
+
+    private void recordAccess(long key) {
+        if (weatherCacheProperties.getRefresh().isEnabled()) {
+            lastAccess.put(key, System.currentTimeMillis());
+        }
+    }
+
+    private void refreshInBackground(long key) {
+        if (inFlightRequests.containsKey(key)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        refreshExecutor.execute(() -> {
+            try {
+                makeCoalescedApiCall(key, data -> data == null || isDueForRefresh(key, data, now), true);
+            }
+            catch (RuntimeException e) {
+                log.warn("Background refresh of cache entry {} failed: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * An entry is due once it is within {@code refreshAhead} plus a per entry jitter of its expiry. The jitter is
+     * derived from the key and expiry so it is stable across scans but differs between entries.
+     */
+    private boolean isDueForRefresh(long key, CachedWeatherData cachedData, long now) {
+        WeatherCacheProperties.Refresh refresh = weatherCacheProperties.getRefresh();
+        long jitterMillis = refresh.getJitter().toMillis();
+        long expiresAt = cachedData.expiresAt().toEpochMilli();
+        long jitter = jitterMillis > 0 ? Math.floorMod(Long.hashCode(key) * 31L + expiresAt, jitterMillis) : 0;
+        return now >= expiresAt - refresh.getRefreshAhead().toMillis() - jitter;
+    }
+
+    private boolean isStaleWhileRevalidate(CachedWeatherData cachedData) {
+        WeatherCacheProperties.Refresh refresh = weatherCacheProperties.getRefresh();
+        return refresh.isEnabled() && cachedData != null
+            && cachedData.expiresAt().plus(refresh.getStaleWhileRevalidate()).isAfter(Instant.now());
+    }
+
+    private boolean isStaleIfError(CachedWeatherData cachedData) {
+        return cachedData != null
+            && cachedData.expiresAt().plus(weatherCacheProperties.getStaleIfError()).isAfter(Instant.now());
+    }
+
+    /**
+     * @param askOwner ask the owning peer of the key before calling MET, see {@link PeerCacheClient}
+     */
+    private CachedWeatherData makeCoalescedApiCall(long key, Predicate<CachedWeatherData> needsCall, boolean askOwner) {
+        CompletableFuture<CachedWeatherData> call = new CompletableFuture<>();
+        CompletableFuture<CachedWeatherData> inFlight = inFlightRequests.putIfAbsent(key, call);
+        if (inFlight != null) {
+            forecastMetrics.coalesced();
+            StageTimer waiting = StageTimer.start(ForecastStage.COALESCED);
+            try {
+                return awaitInFlight(key, inFlight);
+            }
+            finally {
+                waiting.stop();
+            }
+        }
+
+        try {
+            // Another leader may have refreshed the entry between our cache check and taking over the key
+            CachedWeatherData cachedData = getCached(key);
+            CachedWeatherData response = needsCall.test(cachedData) ? fetch(key, cachedData, askOwner) : cachedData;
+            call.complete(response);
+            return response;
+        }
+        catch (RuntimeException | Error e) {
+            // Waiters without a deadline would otherwise wait forever
+            call.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlightRequests.remove(key, call);
+        }
+    }
+
+    /**
+     * Waits for the call of another caller, at most until the deadline of the current request.
+     */
+    private CachedWeatherData awaitInFlight(long key, CompletableFuture<CachedWeatherData> inFlight) {
+        Deadline deadline = Deadline.current();
+        try {
+            return deadline != null
+                ? inFlight.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                : inFlight.join();
+        }
+        catch (CompletionException | ExecutionException e) {
+            // Rethrow the leader's exception as is, so every waiter sees the same typed error
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new MetApiException("Call of cache entry " + key + " failed", e);
+        }
+        catch (TimeoutException e) {
+            throw new MetApiTimeoutException("Request deadline passed waiting for the call of cache entry " + key, e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetApiException("Interrupted waiting for the call of cache entry " + key, e);
+        }
+    }
+
+    private CachedWeatherData fetch(long key, CachedWeatherData cachedData, boolean askOwner) {
+        CachedWeatherData ownerData = askOwner ? fetchFromOwner(key) : null;
+        if (ownerData == null) {
+            return makeApiCall(key, cachedData);
+        }
+        // A local copy of the owner's entry, kept until the owner's expiry so hot keys are served without a peer call
+        log.debug("Updating copy of cache entry from its owning peer!!");
+        peerCopyCache.put(key, ownerData);
+        if (cachedData == null || !Objects.equals(cachedData.lastModified(), ownerData.lastModified())) {
+            eventPublisher.publishEvent(new WeatherDataUpdatedEvent(key, ownerData));
         }
+        return ownerData;
+    }
 
-        ResponseEntity<WeatherData> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), WeatherData.class);
+    private CachedWeatherData fetchFromOwner(long key) {
+        StageTimer peerCall = StageTimer.start(ForecastStage.PEER);
+        try {
+            return peerCacheClient.fetchFromOwner(key);
+        }
+        finally {
+            peerCall.stop();
+        }
+    }
+
+    private CachedWeatherData makeApiCall(long key, CachedWeatherData cachedData) {
+        String url = buildRequestUrl(key);
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new MetApiTimeoutException("Request deadline passed, not calling " + url, null);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            forecastMetrics.metRejected("circuit_open");
+            throw new MetApiUnavailableException("Circuit breaker open, not calling " + url);
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            forecastMetrics.metRejected("concurrency_limit");
+            throw new MetApiUnavailableException("Concurrency limit reached, not calling " + url);
+        }
+
+        Attempt attempt;
+        boolean recorded = false;
+        StageTimer metCall = StageTimer.start(ForecastStage.MET);
+        try {
+            long hedgeDelayNanos = hedgePolicy.hedgeDelayNanos();
+            attempt = hedgeDelayNanos >= 0
+                ? makeHedgedCall(url, cachedData, deadline, hedgeDelayNanos)
+                : makeCall(url, cachedData, new CallHandle(deadline));
+            switch (attempt.outcome()) {
+                case SUCCESS -> circuitBreaker.onSuccess();
+                case FAILURE -> circuitBreaker.onFailure();
+                case IGNORED -> circuitBreaker.onIgnored();
+            }
+            recorded = true;
+        }
+        finally {
+            metCall.stop();
+            if (!recorded) {
+                // Hand a half open trial call back, it would otherwise keep the breaker from ever closing
+                circuitBreaker.onIgnored();
+            }
+        }
+        if (attempt.error() != null) {
+            throw attempt.error();
+        }
+        ResponseEntity<ForecastTimeseries> response = attempt.response();
+        if (cachedData != null && cachedData.lastModified() != null) {
+            forecastMetrics.revalidated(response.getStatusCode() != HttpStatus.NOT_MODIFIED);
+        }
 
         if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cachedData != null) {
-            // Data hasn't changed, return cached data
-            log.info("Not modified returned by downstream, returning data from cache!");
-            return ResponseEntity.ok(cachedData.data());
+            // Data hasn't changed, keep the cached data but take over the new expiry
+            log.debug("Not modified returned by downstream, returning data from cache!");
+            return cacheResponse(key, response.getHeaders(), cachedData.timeseries(), cachedData.lastModified());
         }
 
-        cacheResponse(url, response);
-        return response;
+        CachedWeatherData updatedData = cacheResponse(key, response.getHeaders(), response.getBody(), null);
+        eventPublisher.publishEvent(new WeatherDataUpdatedEvent(key, updatedData));
+        return updatedData;
     }
 
-    private void cacheResponse(String url, ResponseEntity<WeatherData> response) {
-        log.info("Updating cache entry!!");
-        HttpHeaders responseHeaders = response.getHeaders();
+    /**
+     * Calls MET and, if it has not answered within the hedge delay, sends the same call again from the refresh
+     * executor. The first of the two to get a response wins and aborts the other, one that failed without a
+     * response leaves it to the other. The hedge takes its own concurrency permit and is paid from the
+     * {@link HedgePolicy} budget, without either it is not sent.
+     */
+    private Attempt makeHedgedCall(String url, CachedWeatherData cachedData, Deadline deadline, long delayNanos) {
+        CallHandle callHandle = new CallHandle(deadline);
+        CallHandle hedgeHandle = new CallHandle(deadline);
+        //Whoever sets started first decides whether the hedge is sent, the call finishing first or the hedge delay
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicBoolean answered = new AtomicBoolean();
+        CompletableFuture<Attempt> hedge = CompletableFuture.supplyAsync(() -> {
+            if (!started.compareAndSet(false, true) || (deadline != null && deadline.isExpired())
+                || !concurrencyLimiter.tryAcquire()) {
+                return null;
+            }
+            if (!hedgePolicy.tryAcquireHedge()) {
+                concurrencyLimiter.onIgnored();
+                return null;
+            }
+            Attempt hedged = makeCall(url, cachedData, hedgeHandle);
+            if (hedged.answered() && answered.compareAndSet(false, true)) {
+                hedgePolicy.onHedgeWon();
+                callHandle.abort();
+            }
+            return hedged;
+        }, CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, refreshExecutor));
+
+        Attempt attempt = makeCall(url, cachedData, callHandle);
+        if (attempt.answered() && answered.compareAndSet(false, true)) {
+            if (!started.compareAndSet(false, true)) {
+                hedgeHandle.abort();
+            }
+            return attempt;
+        }
+        if (started.compareAndSet(false, true)) {
+            // Failed before the hedge was due
+            return attempt;
+        }
+        Attempt hedged;
+        try {
+            hedged = hedge.join();
+        }
+        catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return hedged != null ? hedged : attempt;
+    }
+
+    /**
+     * A single call to MET, made with a concurrency permit it hands back. Errors are returned rather than thrown, so
+     * hedged calls can tell them apart.
+     */
+    private Attempt makeCall(String url, CachedWeatherData cachedData, CallHandle handle) {
+        CallOutcome outcome = CallOutcome.IGNORED;
+        long startNanos = System.nanoTime();
+        try {
+            ResponseEntity<ForecastTimeseries> response = MetClientHttpRequestFactory.call(handle,
+                () -> restTemplate.execute(url, HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().add("User-Agent", USER_AGENT_VALUE);
+                        if (cachedData != null && cachedData.lastModified() != null) {
+                            request.getHeaders().add("If-Modified-Since", cachedData.lastModified());
+                        }
+                    },
+                    this::extractResponse));
+            outcome = CallOutcome.SUCCESS;
+            forecastMetrics.metRequest(startNanos, String.valueOf(response.getStatusCode().value()));
+            hedgePolicy.onResponse(System.nanoTime() - startNanos);
+            return new Attempt(response, null, outcome, true);
+        }
+        catch (RestClientResponseException e) {
+            // Throttling and server errors mean upstream is struggling, other client errors do not
+            HttpStatusCode status = e.getStatusCode();
+            outcome = status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS
+                ? CallOutcome.FAILURE
+                : CallOutcome.SUCCESS;
+            forecastMetrics.metRequest(startNanos, String.valueOf(e.getStatusCode().value()));
+            hedgePolicy.onResponse(System.nanoTime() - startNanos);
+            return new Attempt(null, new MetApiException("Failed to call " + url, e), outcome, true);
+        }
+        catch (RestClientException e) {
+            if (handle.isAborted()) {
+                // The other one of two hedged calls answered first
+                forecastMetrics.metRequest(startNanos, "aborted");
+                return new Attempt(null, new MetApiException("Aborted call to " + url, e), outcome, false);
+            }
+            outcome = CallOutcome.FAILURE;
+            // Connect, read, pool lease and total deadline timeouts all surface as interrupted io
+            if (e instanceof ResourceAccessException && e.getCause() instanceof InterruptedIOException) {
+                forecastMetrics.metRequest(startNanos, "timeout");
+                return new Attempt(null, new MetApiTimeoutException("Timed out calling " + url, e), outcome, false);
+            }
+            forecastMetrics.metRequest(startNanos, "error");
+            return new Attempt(null, new MetApiException("Failed to call " + url, e), outcome, false);
+        }
+        finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            switch (outcome) {
+                case SUCCESS -> concurrencyLimiter.onSuccess(latencyNanos);
+                case FAILURE -> concurrencyLimiter.onDropped();
+                case IGNORED -> concurrencyLimiter.onIgnored();
+            }
+        }
+    }
+
+    // The body is parsed while it is streamed from the connection, a 304 has no body to parse
+    private ResponseEntity<ForecastTimeseries> extractResponse(ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            return new ResponseEntity<>(ForecastTimeseries.empty(), response.getHeaders(), response.getStatusCode());
+        }
+        StageTimer parsing = StageTimer.start(ForecastStage.PARSE);
+        try {
+            return new ResponseEntity<>(metForecastParser.parse(response.getBody()), response.getHeaders(),
+                response.getStatusCode());
+        }
+        finally {
+            parsing.stop();
+        }
+    }
+
+    private CachedWeatherData cacheResponse(long key, HttpHeaders responseHeaders, ForecastTimeseries timeseries,
+                                            String previousLastModified) {
+        log.debug("Updating cache entry!!");
         String expires = responseHeaders.getFirst(HttpHeaders.EXPIRES);
         String lastModified = responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified == null) {
+            lastModified = previousLastModified;
+        }
+
+        CachedWeatherData cachedData = CachedWeatherData.builder()
+            .timeseries(timeseries)
+            .expiresAt(expires != null ? toInstant(expires) : Instant.now().plus(30, ChronoUnit.SECONDS))
+            .lastModified(lastModified)
+            .build();
+        weatherDataCache.put(key, cachedData);
+        cachedLocationIndex.add(key);
+        return cachedData;
+    }
+
+    private enum CallOutcome {
+        SUCCESS,
+        FAILURE,
+        IGNORED
+    }
+
+    /**
+     * @param answered MET sent a response, whatever its status
+     */
+    private record Attempt(ResponseEntity<ForecastTimeseries> response, MetApiException error, CallOutcome outcome,
+                           boolean answered) {
+    }
+
+    private static boolean isValid(CachedWeatherData cachedData) {
+        return cachedData != null && cachedData.expiresAt().isAfter(Instant.now());
+    }
 
-        weatherDataCache.put(url,
-            CachedWeatherData.builder()
-                .data(response.getBody())
-                .expiresAt(expires != null ? toInstant(expires) : Instant.now().plus(30, ChronoUnit.SECONDS))
-                .lastModified(lastModified)
-                .build());
+    private String buildRequestUrl(long key) {
+        return buildRequestUrl(metApiProperties.getBaseUrl(), locationGrid, key);
     }
 
-    private static String buildRequestUrl(double latitude, double longitude) {
-        return String.format(URL_PATTERN, latitude, longitude);
+    //Package private so the benchmarks can measure it in isolation
+    static String buildRequestUrl(String baseUrl, LocationGrid locationGrid, long key) {
+        StringBuilder url = new StringBuilder(baseUrl.length() + 32).append(baseUrl).append("?lat=");
+        locationGrid.appendLatitude(url, key).append("&lon=");
+        return locationGrid.appendLongitude(url, key).toString();
     }
 
     private Instant toInstant(final String date) {
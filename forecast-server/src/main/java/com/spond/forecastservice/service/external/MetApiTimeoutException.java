@@ -0,0 +1,10 @@
+package com.spond.forecastservice.service.external;
+
+/**
+ * A call to the MET api ran into one of its connect, read or total timeouts.
+ */
+public class MetApiTimeoutException extends MetApiException {
+    public MetApiTimeoutException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package com.spond.forecastservice.service.external;
+
+/**
+ * A call to the MET api was not made, because the circuit breaker is open or the concurrency limit is reached.
+ */
+public class MetApiUnavailableException extends MetApiException {
+    public MetApiUnavailableException(final String message) {
+        super(message, null);
+    }
+}
@@ -0,0 +1,282 @@
+package com.spond.forecastservice.service.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Streams a MET locationforecast response straight into a {@link ForecastTimeseries}. Only {@code time} and the
+ * configured {@code instant.details} fields of each point are read, everything else (geometry, meta, the
+ * {@code next_*_hours} blocks) is skipped without being materialized.
+ */
+@Component
+public class MetForecastParser {
+
+    private static final int INITIAL_CAPACITY = 96;
+
+    private final JsonFactory jsonFactory;
+    private final ForecastField[] fieldsByName;
+    private final String[] names;
+
+    public MetForecastParser(final ObjectMapper objectMapper, final MetApiProperties properties) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.fieldsByName = properties.getFields().toArray(new ForecastField[0]);
+        this.names = Arrays.stream(fieldsByName).map(ForecastField::externalName).toArray(String[]::new);
+    }
+
+    /**
+     * @throws IOException if the body is not a locationforecast response, e.g. a point lacks a valid {@code time},
+     *                     the caller turns it into a {@link MetApiException} like any other failed call
+     */
+    public ForecastTimeseries parse(final InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a json object as locationforecast response");
+            }
+            ForecastTimeseries timeseries = ForecastTimeseries.empty();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("properties".equals(name)) {
+                    timeseries = readProperties(parser);
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            return timeseries;
+        }
+    }
+
+    private ForecastTimeseries readProperties(final JsonParser parser) throws IOException {
+        ForecastTimeseries timeseries = ForecastTimeseries.empty();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("timeseries".equals(name) && value == JsonToken.START_ARRAY) {
+                timeseries = readTimeseries(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        return timeseries;
+    }
+
+    private ForecastTimeseries readTimeseries(final JsonParser parser) throws IOException {
+        Columns columns = new Columns(fieldsByName.length);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int index = columns.addPoint();
+            boolean timed = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("time".equals(name)) {
+                    columns.times[index] = parseEpochSecond(parser);
+                    timed = true;
+                }
+                else if ("data".equals(name)) {
+                    readData(parser, columns, index);
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            //Otherwise the point would silently be placed at the epoch
+            if (!timed) {
+                throw new JsonParseException(parser, "Timeseries point without time");
+            }
+        }
+        return columns.build(fieldsByName);
+    }
+
+    private void readData(final JsonParser parser, final Columns columns, final int index) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("instant".equals(name)) {
+                readInstant(parser, columns, index);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readInstant(final JsonParser parser, final Columns columns, final int index) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("details".equals(name)) {
+                readDetails(parser, columns, index);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readDetails(final JsonParser parser, final Columns columns, final int index) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int column = columnOf(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (column >= 0 && value.isNumeric()) {
+                columns.values[column][index] = parser.getFloatValue();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private int columnOf(final String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * MET always sends UTC timestamps formatted as {@code yyyy-MM-ddTHH:mm:ssZ}, valid ones are converted without
+     * allocating, anything else goes through {@link Instant#parse}.
+     *
+     * @throws JsonParseException if the time is not a string or not a valid timestamp
+     */
+    static long parseEpochSecond(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected time as string but got " + parser.currentToken());
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == 20 && text[offset + 4] == '-' && text[offset + 7] == '-' && text[offset + 10] == 'T'
+            && text[offset + 13] == ':' && text[offset + 16] == ':' && text[offset + 19] == 'Z') {
+            int year = digits(text, offset, 4);
+            int month = digits(text, offset + 5, 2);
+            int day = digits(text, offset + 8, 2);
+            int hour = digits(text, offset + 11, 2);
+            int minute = digits(text, offset + 14, 2);
+            int second = digits(text, offset + 17, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                return epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+            }
+        }
+        try {
+            return Instant.parse(parser.getText()).getEpochSecond();
+        }
+        catch (DateTimeParseException e) {
+            throw new JsonParseException(parser, "Invalid time " + parser.getText(), e);
+        }
+    }
+
+    private static int digits(final char[] text, final int offset, final int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    //Days since 1970-01-01 in the proleptic gregorian calendar, same algorithm as LocalDate.toEpochDay
+    private static long epochDay(final long year, final int month, final int day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - 719_528;
+    }
+
+    private static int lengthOfMonth(final long year, final int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isLeapYear(final long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Growable primitive columns, trimmed to size once the timeseries array has been read.
+     */
+    private static final class Columns {
+        private long[] times = new long[INITIAL_CAPACITY];
+        private final float[][] values;
+        private int size;
+
+        private Columns(final int fieldCount) {
+            values = new float[fieldCount][];
+            for (int i = 0; i < fieldCount; i++) {
+                values[i] = newColumn(INITIAL_CAPACITY);
+            }
+        }
+
+        private int addPoint() {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                for (int i = 0; i < values.length; i++) {
+                    float[] grown = newColumn(capacity);
+                    System.arraycopy(values[i], 0, grown, 0, size);
+                    values[i] = grown;
+                }
+            }
+            return size++;
+        }
+
+        private ForecastTimeseries build(final ForecastField[] fields) {
+            float[][] columns = new float[ForecastField.values().length][];
+            for (int i = 0; i < fields.length; i++) {
+                columns[fields[i].ordinal()] = Arrays.copyOf(values[i], size);
+            }
+            return new ForecastTimeseries(Arrays.copyOf(times, size), columns);
+        }
+
+        private static float[] newColumn(final int capacity) {
+            float[] column = new float[capacity];
+            Arrays.fill(column, Float.NaN);
+            return column;
+        }
+    }
+}
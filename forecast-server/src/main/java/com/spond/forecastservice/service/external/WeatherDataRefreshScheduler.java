@@ -0,0 +1,25 @@
+package com.spond.forecastservice.service.external;
+
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically hands the cache to {@link MetApiService#refreshAhead()}, every {@code forecast.cache.refresh.scan-interval}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "forecast.cache.refresh", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WeatherDataRefreshScheduler implements SchedulingConfigurer {
+
+    private final MetApiService metApiService;
+    private final WeatherCacheProperties weatherCacheProperties;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(metApiService::refreshAhead, weatherCacheProperties.getRefresh().getScanInterval());
+    }
+}
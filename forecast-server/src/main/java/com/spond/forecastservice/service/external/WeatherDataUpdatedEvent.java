@@ -0,0 +1,11 @@
+package com.spond.forecastservice.service.external;
+
+/**
+ * Published by {@link MetApiService} once a location's cached forecast was replaced by a changed one, i.e. MET or
+ * the owning peer answered with new data rather than a 304. Listeners run on the thread that updated the cache.
+ *
+ * @param key  cache key of the location, see {@link com.spond.forecastservice.service.external.location.LocationGrid}
+ * @param data the new cache entry
+ */
+public record WeatherDataUpdatedEvent(long key, CachedWeatherData data) {
+}
@@ -0,0 +1,82 @@
+package com.spond.forecastservice.service.external.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable consistent hash ring of peers. Every peer is placed on the ring at {@code virtualNodes} points and a key
+ * is owned by the peer of the first point at or after the hash of the key, so adding or removing a peer only moves
+ * the keys of that peer. Hashes only depend on the peer names, every replica configured with the same peers agrees on
+ * the owners.
+ */
+public final class ConsistentHashRing {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    //Sorted points, the owner of points[i] is owners[i]
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(final List<String> peers, final int virtualNodes) {
+        if (peers.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one peer and one virtual node per peer");
+        }
+        int size = peers.size() * virtualNodes;
+        long[] unsorted = new long[size];
+        String[] unsortedOwners = new String[size];
+        Integer[] order = new Integer[size];
+        int n = 0;
+        for (String peer : peers) {
+            long peerHash = hash(peer);
+            for (int i = 0; i < virtualNodes; i++, n++) {
+                unsorted[n] = mix(peerHash + i * GOLDEN_GAMMA);
+                unsortedOwners[n] = peer;
+                order[n] = n;
+            }
+        }
+        //Ties between peers are broken by name so every replica builds the same ring
+        Arrays.sort(order, (a, b) -> {
+            int byPoint = Long.compare(unsorted[a], unsorted[b]);
+            return byPoint != 0 ? byPoint : unsortedOwners[a].compareTo(unsortedOwners[b]);
+        });
+        points = new long[size];
+        owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = unsortedOwners[order[i]];
+        }
+    }
+
+    public String ownerOf(final long key) {
+        long point = mix(key);
+        int index = Arrays.binarySearch(points, point);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        else {
+            //Several peers may share a point, the first one in the sorted order owns it
+            while (index > 0 && points[index - 1] == point) {
+                index--;
+            }
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    //64 bit FNV-1a over the UTF-8 bytes, stable across JVMs unlike identity hashes
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //SplitMix64 finalizer, neighbouring grid keys end up far apart on the ring
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
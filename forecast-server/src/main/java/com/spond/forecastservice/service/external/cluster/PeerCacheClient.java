@@ -0,0 +1,245 @@
+package com.spond.forecastservice.service.external.cluster;
+
+import com.spond.forecastservice.config.ClusterProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.MetClientHttpRequestFactory;
+import com.spond.forecastservice.config.MetClientHttpRequestFactory.CallHandle;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiException;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.MetApiUnavailableException;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import com.spond.forecastservice.service.external.snapshot.WeatherSnapshotCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Client side of the shared cache tier, see {@link ClusterProperties}. Every location key is owned by one peer on a
+ * {@link ConsistentHashRing}, the other replicas ask the owner for the entry instead of calling MET themselves.
+ */
+@Component
+@Slf4j
+public class PeerCacheClient implements DisposableBean {
+
+    public static final String ENTRY_PATH = "/internal/cache/entries/{key}";
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+    //Answered by a peer asked for a key it does not own
+    public static final int MISDIRECTED_REQUEST = 421;
+
+    private final ClusterProperties properties;
+    private final LocationProperties locationProperties;
+    private final MetApiProperties metApiProperties;
+    private final ForecastMetrics forecastMetrics;
+    private final RestTemplate restTemplate;
+    private final ConsistentHashRing ring;
+    private final LongSupplier clock;
+    //Peers that could not be connected to, until when in epoch millis they are skipped
+    private final ConcurrentMap<String, Long> unreachableUntil = new ConcurrentHashMap<>();
+    private MetClientHttpRequestFactory requestFactory;
+
+    @Autowired
+    public PeerCacheClient(final ClusterProperties properties, final LocationProperties locationProperties,
+                           final MetApiProperties metApiProperties, final ForecastMetrics forecastMetrics,
+                           final RestTemplateBuilder restTemplateBuilder) {
+        this(properties, locationProperties, metApiProperties, forecastMetrics, restTemplateBuilder,
+            requestFactory(properties));
+    }
+
+    private PeerCacheClient(final ClusterProperties properties, final LocationProperties locationProperties,
+                            final MetApiProperties metApiProperties, final ForecastMetrics forecastMetrics,
+                            final RestTemplateBuilder restTemplateBuilder,
+                            final MetClientHttpRequestFactory requestFactory) {
+        this(properties, locationProperties, metApiProperties, forecastMetrics,
+            restTemplateBuilder.requestFactory(() -> requestFactory).build(), System::currentTimeMillis);
+        this.requestFactory = requestFactory;
+    }
+
+    PeerCacheClient(final ClusterProperties properties, final LocationProperties locationProperties,
+                    final MetApiProperties metApiProperties, final ForecastMetrics forecastMetrics,
+                    final RestTemplate restTemplate, final LongSupplier clock) {
+        this.properties = properties;
+        this.locationProperties = locationProperties;
+        this.metApiProperties = metApiProperties;
+        this.forecastMetrics = forecastMetrics;
+        this.restTemplate = restTemplate;
+        this.clock = clock;
+        if (properties.isEnabled()) {
+            if (!properties.getPeers().contains(properties.getSelf())) {
+                throw new IllegalStateException("forecast.cluster.self must be one of forecast.cluster.peers");
+            }
+            if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+                throw new IllegalStateException("forecast.cluster.secret must be set");
+            }
+            this.ring = new ConsistentHashRing(properties.getPeers(), properties.getVirtualNodes());
+        }
+        else {
+            this.ring = null;
+        }
+    }
+
+    /**
+     * Whether the caller sent the secret of the cluster, compared in constant time.
+     */
+    public boolean isPeer(final String secret) {
+        return ring != null && secret != null && MessageDigest.isEqual(
+            secret.getBytes(StandardCharsets.UTF_8), properties.getSecret().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isOwnedBySelf(final long key) {
+        return ring != null && ring.ownerOf(key).equals(properties.getSelf());
+    }
+
+    /**
+     * The call is bounded by the read timeout and what is left of the request's {@link Deadline}, whichever passes
+     * first.
+     *
+     * @return the entry of the owning peer, or {@code null} if the cluster is disabled, this replica owns the key,
+     * the owner cannot be reached, does not own it or runs with another grid precision or other fields, the caller
+     * should then call MET itself
+     * @throws MetApiTimeoutException     if the owner did not answer in time or the request deadline passed
+     * @throws MetApiUnavailableException if the owner could not call MET because of its circuit breaker or
+     *                                    concurrency limit
+     * @throws MetApiException            if the owner answered with any other error
+     */
+    public CachedWeatherData fetchFromOwner(final long key) {
+        if (ring == null) {
+            return null;
+        }
+        String owner = ring.ownerOf(key);
+        if (owner.equals(properties.getSelf()) || isUnreachable(owner)) {
+            return null;
+        }
+
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new MetApiTimeoutException("Request deadline passed, not asking peer " + owner + " for " + key, null);
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            CachedWeatherData data = MetClientHttpRequestFactory.call(new CallHandle(deadline),
+                () -> restTemplate.execute(owner + ENTRY_PATH, HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().add("User-Agent", MetApiService.USER_AGENT_VALUE);
+                        request.getHeaders().add(SECRET_HEADER, properties.getSecret());
+                    },
+                    response -> readEntry(key, ByteBuffer.wrap(response.getBody().readAllBytes())),
+                    key));
+            if (data == null) {
+                // A rollout changing the grid or the fields, the owner's key is another location or lacks fields
+                forecastMetrics.peerRequest(startNanos, "format_mismatch");
+                log.debug("Peer {} runs with another grid or other fields, calling MET directly for {}", owner, key);
+                return null;
+            }
+            forecastMetrics.peerRequest(startNanos, "hit");
+            return data;
+        }
+        catch (ResourceAccessException e) {
+            // The owner accepted the connection but is busy calling MET, asking MET again would not be faster. Read
+            // timeouts and calls aborted at the deadline both surface as interrupted io
+            if (e.getCause() instanceof InterruptedIOException && !(e.getCause() instanceof ConnectTimeoutException)) {
+                forecastMetrics.peerRequest(startNanos, "timeout");
+                throw new MetApiTimeoutException("Timed out waiting for peer " + owner, e);
+            }
+            forecastMetrics.peerRequest(startNanos, "unreachable");
+            log.warn("Peer {} is unreachable, calling MET directly for {}: {}", owner,
+                properties.getUnreachableBackoff(), e.getMessage());
+            unreachableUntil.put(owner, clock.getAsLong() + properties.getUnreachableBackoff().toMillis());
+            return null;
+        }
+        catch (RestClientResponseException e) {
+            forecastMetrics.peerRequest(startNanos, String.valueOf(e.getStatusCode().value()));
+            if (e.getStatusCode().value() == MISDIRECTED_REQUEST) {
+                log.debug("Peer {} does not own {}, calling MET directly", owner, key);
+                return null;
+            }
+            if (e.getStatusCode().value() == HttpStatus.GATEWAY_TIMEOUT.value()) {
+                throw new MetApiTimeoutException("Peer " + owner + " timed out calling MET", e);
+            }
+            if (e.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                throw new MetApiUnavailableException("Peer " + owner + " could not call MET");
+            }
+            throw new MetApiException("Peer " + owner + " failed to return " + key, e);
+        }
+        catch (RestClientException | IllegalArgumentException | BufferUnderflowException e) {
+            forecastMetrics.peerRequest(startNanos, "error");
+            throw new MetApiException("Failed to read " + key + " from peer " + owner, e);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (requestFactory != null) {
+            requestFactory.destroy();
+        }
+    }
+
+    private boolean isUnreachable(String peer) {
+        Long until = unreachableUntil.get(peer);
+        if (until == null) {
+            return false;
+        }
+        if (clock.getAsLong() < until) {
+            return true;
+        }
+        unreachableUntil.remove(peer, until);
+        return false;
+    }
+
+    private static MetClientHttpRequestFactory requestFactory(ClusterProperties properties) {
+        Timeout readTimeout = Timeout.ofMilliseconds(properties.getReadTimeout().toMillis());
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout().toMillis()))
+                    .setSocketTimeout(readTimeout)
+                    .build())
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(readTimeout)
+                .build())
+            .build();
+        return new MetClientHttpRequestFactory(httpClient, properties.getReadTimeout());
+    }
+
+    // Null if the owner wrote the entry with another grid precision or other fields
+    private CachedWeatherData readEntry(long key, ByteBuffer entry) {
+        if (!WeatherSnapshotCodec.readFormat(entry, locationProperties.getGridDecimals(),
+            metApiProperties.getFields())) {
+            return null;
+        }
+        long entryKey = WeatherSnapshotCodec.readKey(entry);
+        if (entryKey != key) {
+            throw new IllegalArgumentException("Peer returned entry " + entryKey + " instead of " + key);
+        }
+        return WeatherSnapshotCodec.readData(entry);
+    }
+}
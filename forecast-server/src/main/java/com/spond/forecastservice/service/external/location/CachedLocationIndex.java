@@ -0,0 +1,101 @@
+package com.spond.forecastservice.service.external.location;
+
+import com.spond.forecastservice.config.LocationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Spatial index over the grid keys currently held in the weather data cache. Keys are bucketed in coarse cells that
+ * are as wide as the reuse radius, so a nearest lookup only has to look at the surrounding cells.
+ */
+@Component
+public class CachedLocationIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+    private static final double MIN_LONGITUDE_SCALE = 0.01;
+
+    private final LocationGrid locationGrid;
+    private final double radiusMeters;
+    private final double cellDegrees;
+    private final ConcurrentMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public CachedLocationIndex(final LocationGrid locationGrid, final LocationProperties properties) {
+        this.locationGrid = locationGrid;
+        this.radiusMeters = properties.getReuseRadiusMeters();
+        this.cellDegrees = radiusMeters / METERS_PER_DEGREE;
+    }
+
+    public boolean isEnabled() {
+        return radiusMeters > 0;
+    }
+
+    public void add(final long key) {
+        if (!isEnabled()) {
+            return;
+        }
+        cells.computeIfAbsent(cellOf(locationGrid.latitude(key), locationGrid.longitude(key)),
+            cell -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    public void remove(final long key) {
+        if (!isEnabled()) {
+            return;
+        }
+        cells.computeIfPresent(cellOf(locationGrid.latitude(key), locationGrid.longitude(key)), (cell, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Finds the closest indexed key within the reuse radius that is accepted by the given filter.
+     *
+     * @return the key, or {@code null} if no accepted key is close enough
+     */
+    public Long findNearest(final double latitude, final double longitude, final LongPredicate filter) {
+        if (!isEnabled() || cells.isEmpty()) {
+            return null;
+        }
+        double longitudeScale = Math.max(Math.cos(Math.toRadians(latitude)), MIN_LONGITUDE_SCALE);
+        // Longitude cells shrink towards the poles, so more of them are needed to cover the radius
+        int longitudeSpan = (int) Math.ceil(1 / longitudeScale);
+        int latitudeCell = (int) Math.floor(latitude / cellDegrees);
+        int longitudeCell = (int) Math.floor(longitude / cellDegrees);
+
+        Long nearest = null;
+        double nearestDistance = radiusMeters;
+        for (int latOffset = -1; latOffset <= 1; latOffset++) {
+            for (int lonOffset = -longitudeSpan; lonOffset <= longitudeSpan; lonOffset++) {
+                Set<Long> keys = cells.get(LocationGrid.pack(latitudeCell + latOffset, longitudeCell + lonOffset));
+                if (keys == null) {
+                    continue;
+                }
+                for (Long key : keys) {
+                    double distance = distanceMeters(latitude, longitude, longitudeScale,
+                        locationGrid.latitude(key), locationGrid.longitude(key));
+                    if (distance <= nearestDistance && filter.test(key)) {
+                        nearest = key;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private long cellOf(final double latitude, final double longitude) {
+        return LocationGrid.pack((int) Math.floor(latitude / cellDegrees), (int) Math.floor(longitude / cellDegrees));
+    }
+
+    //Equirectangular approximation, accurate enough for the short distances the reuse radius is meant for
+    private static double distanceMeters(double latitude, double longitude, double longitudeScale,
+                                         double otherLatitude, double otherLongitude) {
+        double dLat = (otherLatitude - latitude) * METERS_PER_DEGREE;
+        double dLon = (otherLongitude - longitude) * METERS_PER_DEGREE * longitudeScale;
+        return Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+}
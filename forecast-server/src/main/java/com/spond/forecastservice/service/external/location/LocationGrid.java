@@ -0,0 +1,74 @@
+package com.spond.forecastservice.service.external.location;
+
+import com.spond.forecastservice.config.LocationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Snaps coordinates to a fixed decimal grid and packs the grid cell into a single {@code long} key:
+ * the latitude index in the upper 32 bits and the longitude index in the lower 32 bits.
+ */
+@Component
+public class LocationGrid {
+
+    private final int decimals;
+    private final double scale;
+
+    public LocationGrid(final LocationProperties properties) {
+        this.decimals = properties.getGridDecimals();
+        this.scale = Math.pow(10, decimals);
+    }
+
+    public long toKey(final double latitude, final double longitude) {
+        return pack((int) Math.round(latitude * scale), (int) Math.round(longitude * scale));
+    }
+
+    public double latitude(final long key) {
+        return latitudeIndex(key) / scale;
+    }
+
+    public double longitude(final long key) {
+        return longitudeIndex(key) / scale;
+    }
+
+    /**
+     * Appends the snapped coordinate with exactly {@code gridDecimals} decimals, without going through the locale
+     * sensitive {@link String#format}.
+     */
+    public StringBuilder appendLatitude(final StringBuilder builder, final long key) {
+        return appendFixed(builder, latitudeIndex(key));
+    }
+
+    public StringBuilder appendLongitude(final StringBuilder builder, final long key) {
+        return appendFixed(builder, longitudeIndex(key));
+    }
+
+    static long pack(final int latitudeIndex, final int longitudeIndex) {
+        return ((long) latitudeIndex << 32) | (longitudeIndex & 0xFFFFFFFFL);
+    }
+
+    private static int latitudeIndex(final long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int longitudeIndex(final long key) {
+        return (int) key;
+    }
+
+    private StringBuilder appendFixed(final StringBuilder builder, final int index) {
+        long abs = Math.abs((long) index);
+        if (index < 0) {
+            builder.append('-');
+        }
+        long unit = (long) scale;
+        builder.append(abs / unit);
+        if (decimals > 0) {
+            builder.append('.');
+            String fraction = Long.toString(abs % unit);
+            for (int i = fraction.length(); i < decimals; i++) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,108 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Additive increase, multiplicative decrease limit of concurrent MET calls, see
+ * {@link MetApiProperties.ConcurrencyLimit}. Every acquired permit must be handed back through exactly one of
+ * {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onIgnored()}.
+ */
+@Component
+public class AimdConcurrencyLimiter implements MeterBinder {
+
+    private final MetApiProperties.ConcurrencyLimit properties;
+    //A plain lock rather than synchronized, so virtual threads are not pinned while waiting for it
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private int inFlight;
+
+    public AimdConcurrencyLimiter(final MetApiProperties metApiProperties) {
+        this.properties = metApiProperties.getConcurrencyLimit();
+        this.limit = Math.min(properties.getInitialLimit(), properties.getMaxLimit());
+    }
+
+    /**
+     * @return {@code true} if the call may go ahead, {@code false} if the limit is reached
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call got a response from upstream, slow responses still shrink the limit.
+     */
+    public void onSuccess(final long latencyNanos) {
+        if (latencyNanos > properties.getLatencyThreshold().toNanos()) {
+            onDropped();
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call timed out or upstream signalled overload.
+     */
+    public void onDropped() {
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call ended without saying anything about upstream capacity.
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            inFlight--;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("forecast.met.concurrency.limit", this, AimdConcurrencyLimiter::getLimit)
+            .description("Current limit of concurrent MET api calls")
+            .register(registry);
+    }
+}
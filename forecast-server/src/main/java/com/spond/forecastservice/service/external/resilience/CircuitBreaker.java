@@ -0,0 +1,176 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker in front of the MET api, see {@link MetApiProperties.CircuitBreaker}. Every granted
+ * permission must be handed back through exactly one of {@link #onSuccess()}, {@link #onFailure()} or
+ * {@link #onIgnored()}.
+ */
+@Component
+public class CircuitBreaker implements MeterBinder {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final MetApiProperties.CircuitBreaker properties;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    //Ring buffer of the outcomes of the last calls while closed, true for a failure
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialCalls;
+    private int trialSuccesses;
+
+    @Autowired
+    public CircuitBreaker(final MetApiProperties metApiProperties) {
+        this(metApiProperties, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(final MetApiProperties metApiProperties, final LongSupplier clock) {
+        this.properties = metApiProperties.getCircuitBreaker();
+        this.clock = clock;
+        this.outcomes = new boolean[properties.getSlidingWindowSize()];
+    }
+
+    /**
+     * @return {@code true} if the call may go ahead, {@code false} while the breaker is open or every trial call of
+     * the half open state is taken
+     */
+    public boolean tryAcquirePermission() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < properties.getOpenDuration().toMillis()) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialCalls = 0;
+                trialSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialCalls >= properties.getHalfOpenCalls()) {
+                    return false;
+                }
+                trialCalls++;
+            }
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    /**
+     * The call ended without saying anything about upstream health, a trial call is handed back.
+     */
+    public void onIgnored() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && trialCalls > 0) {
+                trialCalls--;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("forecast.met.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("State of the MET api circuit breaker, 0 closed, 1 open, 2 half open")
+            .register(registry);
+    }
+
+    private void record(boolean failure) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (failure) {
+                        open();
+                    }
+                    else if (++trialSuccesses >= properties.getHalfOpenCalls()) {
+                        close();
+                    }
+                }
+                case CLOSED -> {
+                    if (calls == outcomes.length) {
+                        failures -= outcomes[next] ? 1 : 0;
+                    }
+                    else {
+                        calls++;
+                    }
+                    outcomes[next] = failure;
+                    failures += failure ? 1 : 0;
+                    next = (next + 1) % outcomes.length;
+                    if (calls >= properties.getMinimumCalls()
+                        && failures >= properties.getFailureRateThreshold() * calls) {
+                        open();
+                    }
+                }
+                //Calls let through before the breaker opened say nothing about the current state
+                case OPEN -> {
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which an incoming request has to be answered, bound to the thread serving it so the MET calls
+ * made on its behalf can be bounded by what is left of it. Work handed off to other threads takes the deadline along
+ * with {@link #call(Deadline, Supplier)}.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration duration) {
+        return new Deadline(System.nanoTime() + duration.toNanos());
+    }
+
+    /**
+     * @return the deadline of the current thread, or {@code null} outside of a request
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the deadline to the current thread, until {@link #unbind()}.
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the call with the deadline bound to the current thread, or without one if it is {@code null}.
+     */
+    public static <T> T call(Deadline deadline, Supplier<T> call) {
+        Deadline previous = CURRENT.get();
+        if (deadline != null) {
+            CURRENT.set(deadline);
+        }
+        else {
+            CURRENT.remove();
+        }
+        try {
+            return call.get();
+        }
+        finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            }
+            else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the time left, zero or negative once the deadline has passed
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * @return the shorter of {@code timeoutNanos} and the time left of the deadline, if there is one
+     */
+    public static long remainingNanos(Deadline deadline, long timeoutNanos) {
+        return deadline != null ? Math.min(timeoutNanos, deadline.remainingNanos()) : timeoutNanos;
+    }
+}
@@ -0,0 +1,124 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * When and how often MET calls are hedged, see {@link MetApiProperties.Hedging}. The delay is the configured
+ * percentile of the latencies of the last calls that got a response, computed once there are enough of them and
+ * then every tenth of the sample size, so asking for it costs a volatile read.
+ */
+@Component
+public class HedgePolicy implements MeterBinder {
+
+    public static final String HEDGES = "forecast.met.hedges";
+
+    private final MetApiProperties.Hedging properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    //Ring buffer of the latencies of the last calls
+    private final long[] latencies;
+    private final int recomputeEvery;
+    private int next;
+    private int samples;
+    private int sinceRecompute;
+    //In thousandths of a hedge, so adding up small ratios stays exact
+    private long budget;
+    private volatile long delayNanos = -1;
+    private Counter sent;
+    private Counter won;
+    private Counter denied;
+
+    public HedgePolicy(final MetApiProperties metApiProperties) {
+        this.properties = metApiProperties.getHedging();
+        this.latencies = new long[properties.getSampleSize()];
+        this.recomputeEvery = Math.max(1, properties.getSampleSize() / 10);
+        this.budget = properties.getBudgetBurst() * 1000L;
+    }
+
+    /**
+     * @return how long a call is given before it is hedged, or {@code -1} if calls are not hedged
+     */
+    public long hedgeDelayNanos() {
+        return properties.isEnabled() ? delayNanos : -1;
+    }
+
+    /**
+     * Records the latency of a call that got a response and adds its share to the hedge budget.
+     */
+    public void onResponse(final long latencyNanos) {
+        lock.lock();
+        try {
+            latencies[next] = latencyNanos;
+            next = (next + 1) % latencies.length;
+            samples = Math.min(samples + 1, latencies.length);
+            budget = Math.min(properties.getBudgetBurst() * 1000L, budget + Math.round(properties.getBudgetRatio() * 1000));
+            if (samples >= properties.getMinSamples() && (++sinceRecompute >= recomputeEvery || delayNanos < 0)) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(latencies, samples);
+                Arrays.sort(sorted);
+                long percentile = sorted[(int) Math.ceil(properties.getPercentile() * samples) - 1];
+                delayNanos = Math.max(properties.getMinDelay().toNanos(), percentile);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} if the budget allows another hedge, which is then paid for
+     */
+    public boolean tryAcquireHedge() {
+        lock.lock();
+        try {
+            if (budget < 1000) {
+                increment(denied);
+                return false;
+            }
+            budget -= 1000;
+            increment(sent);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The hedge answered before the call it was sent for.
+     */
+    public void onHedgeWon() {
+        increment(won);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        sent = hedges(registry, "sent");
+        won = hedges(registry, "won");
+        denied = hedges(registry, "denied");
+        TimeGauge.builder("forecast.met.hedge.delay", this, TimeUnit.NANOSECONDS, policy -> Math.max(0, policy.delayNanos))
+            .description("Time a MET call is given before it is hedged")
+            .register(registry);
+    }
+
+    private static Counter hedges(MeterRegistry registry, String result) {
+        return Counter.builder(HEDGES)
+            .description("Hedged MET calls, denied if the hedge budget was used up")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.spond.forecastservice.service.external.snapshot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the weather cache to a local file so a restarted instance starts warm. Restored entries that have
+ * expired in the meantime still carry their {@code Last-Modified}, so they are revalidated with a cheap conditional
+ * request instead of a full download.
+ * <p>
+ * File layout: {@code int magic | int version | long writtenAt (epoch millis) | int entries} followed by the
+ * format and the entries in {@link WeatherSnapshotCodec} format. A snapshot written with another grid precision or
+ * other fields is ignored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "forecast.cache.snapshot", name = "enabled", havingValue = "true")
+public class WeatherCacheSnapshotService implements SchedulingConfigurer {
+
+    static final int MAGIC = 0x53464353; // "SFCS"
+    static final int VERSION = 2;
+
+    private final Cache<Long, CachedWeatherData> weatherDataCache;
+    private final CachedLocationIndex cachedLocationIndex;
+    private final WeatherCacheProperties weatherCacheProperties;
+    private final LocationProperties locationProperties;
+    private final MetApiProperties metApiProperties;
+
+    @PostConstruct
+    public void load() {
+        WeatherCacheProperties.Snapshot properties = weatherCacheProperties.getSnapshot();
+        Path path = properties.getPath();
+        if (path == null) {
+            throw new IllegalStateException("forecast.cache.snapshot.path must be set");
+        }
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring weather cache snapshot {} with unknown format", path);
+                return;
+            }
+            Instant writtenAt = Instant.ofEpochMilli(buffer.getLong());
+            Duration age = Duration.between(writtenAt, Instant.now());
+            if (age.compareTo(properties.getMaxAge()) > 0) {
+                log.info("Ignoring weather cache snapshot {} written {} ago", path, age);
+                return;
+            }
+
+            int entries = buffer.getInt();
+            if (!WeatherSnapshotCodec.readFormat(buffer, locationProperties.getGridDecimals(),
+                metApiProperties.getFields())) {
+                log.info("Ignoring weather cache snapshot {} written with another grid or other fields", path);
+                return;
+            }
+            for (int i = 0; i < entries; i++) {
+                restore(WeatherSnapshotCodec.readKey(buffer), WeatherSnapshotCodec.readData(buffer));
+            }
+            log.info("Restored {} weather cache entries from {}", entries, path);
+        }
+        catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            //Whatever was restored before the bad entry is still valid data, the rest is simply fetched again
+            log.warn("Failed to read weather cache snapshot {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void write() {
+        Path path = weatherCacheProperties.getSnapshot().getPath();
+        List<Map.Entry<Long, CachedWeatherData>> entries = new ArrayList<>(weatherDataCache.asMap().entrySet());
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(entries.size());
+                WeatherSnapshotCodec.writeFormat(out, locationProperties.getGridDecimals(),
+                    metApiProperties.getFields());
+                for (Map.Entry<Long, CachedWeatherData> entry : entries) {
+                    WeatherSnapshotCodec.writeEntry(out, entry.getKey(), entry.getValue());
+                }
+            }
+            catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            //Readers either see the previous snapshot or the complete new one, never a partially written file
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote {} weather cache entries to {}", entries.size(), path);
+        }
+        catch (IOException e) {
+            log.warn("Failed to write weather cache snapshot {}", path, e);
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::write, weatherCacheProperties.getSnapshot().getWriteInterval());
+    }
+
+    private void restore(long key, CachedWeatherData cachedData) {
+        //Never replace data fetched since startup with older data from the snapshot
+        if (weatherDataCache.asMap().putIfAbsent(key, cachedData) == null) {
+            cachedLocationIndex.add(key);
+        }
+    }
+}
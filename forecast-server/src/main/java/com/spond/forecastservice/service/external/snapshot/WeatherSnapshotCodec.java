@@ -0,0 +1,153 @@
+package com.spond.forecastservice.service.external.snapshot;
+
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Compact big endian binary format for cached weather data. Entries are preceded by the format they were written
+ * with, {@code int grid decimals | int field mask}, and an entry is laid out as
+ * <pre>
+ * long key | long expiresAt (epoch millis) | int lastModified length (-1 for null) | lastModified UTF-8 bytes
+ * int points | int field mask | long[points] epoch seconds | float[points] per field set in the mask
+ * </pre>
+ * so it can be written with a {@link DataOutput} and read back from a (memory mapped) {@link ByteBuffer}.
+ */
+public final class WeatherSnapshotCodec {
+
+    private static final ForecastField[] FIELDS = ForecastField.values();
+
+    private WeatherSnapshotCodec() {
+    }
+
+    /**
+     * Writes the format of the entries that follow. Keys are packed for one grid precision and entries hold the
+     * fields that were loaded, a reader running with another configuration would serve one location's forecast for
+     * another or miss fields.
+     */
+    public static void writeFormat(final DataOutput out, final int gridDecimals, final Set<ForecastField> fields)
+        throws IOException {
+        out.writeInt(gridDecimals);
+        out.writeInt(fieldMask(fields));
+    }
+
+    /**
+     * Reads the format written by {@link #writeFormat(DataOutput, int, Set)}.
+     *
+     * @return whether the entries that follow were written with the given grid precision and fields
+     * @throws java.nio.BufferUnderflowException if the format is truncated
+     */
+    public static boolean readFormat(final ByteBuffer in, final int gridDecimals, final Set<ForecastField> fields) {
+        int writtenDecimals = in.getInt();
+        int writtenMask = in.getInt();
+        return writtenDecimals == gridDecimals && writtenMask == fieldMask(fields);
+    }
+
+    public static void writeEntry(final DataOutput out, final long key, final CachedWeatherData data) throws IOException {
+        out.writeLong(key);
+        out.writeLong(data.expiresAt().toEpochMilli());
+        if (data.lastModified() == null) {
+            out.writeInt(-1);
+        }
+        else {
+            byte[] lastModified = data.lastModified().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(lastModified.length);
+            out.write(lastModified);
+        }
+
+        ForecastTimeseries timeseries = data.timeseries();
+        int points = timeseries.size();
+        int fieldMask = 0;
+        for (ForecastField field : FIELDS) {
+            if (timeseries.hasField(field)) {
+                fieldMask |= 1 << field.ordinal();
+            }
+        }
+        out.writeInt(points);
+        out.writeInt(fieldMask);
+        for (int i = 0; i < points; i++) {
+            out.writeLong(timeseries.epochSecond(i));
+        }
+        for (ForecastField field : FIELDS) {
+            if (timeseries.hasField(field)) {
+                for (int i = 0; i < points; i++) {
+                    out.writeFloat(timeseries.value(field, i));
+                }
+            }
+        }
+    }
+
+    private static int fieldMask(final Set<ForecastField> fields) {
+        int fieldMask = 0;
+        for (ForecastField field : fields) {
+            fieldMask |= 1 << field.ordinal();
+        }
+        return fieldMask;
+    }
+
+    /**
+     * Reads the key of the next entry, to be followed by {@link #readData(ByteBuffer)}.
+     */
+    public static long readKey(final ByteBuffer in) {
+        return in.getLong();
+    }
+
+    /**
+     * Reads the data of the next entry.
+     *
+     * @throws IllegalArgumentException if the entry is malformed
+     * @throws java.nio.BufferUnderflowException if the entry is truncated
+     */
+    public static CachedWeatherData readData(final ByteBuffer in) {
+        Instant expiresAt = Instant.ofEpochMilli(in.getLong());
+        int lastModifiedLength = in.getInt();
+        String lastModified = null;
+        if (lastModifiedLength > in.remaining()) {
+            throw new IllegalArgumentException("Last-Modified length " + lastModifiedLength + " exceeds the entry");
+        }
+        if (lastModifiedLength >= 0) {
+            byte[] bytes = new byte[lastModifiedLength];
+            in.get(bytes);
+            lastModified = new String(bytes, StandardCharsets.UTF_8);
+        }
+        else if (lastModifiedLength != -1) {
+            throw new IllegalArgumentException("Invalid Last-Modified length " + lastModifiedLength);
+        }
+
+        int points = in.getInt();
+        int fieldMask = in.getInt();
+        if (points < 0 || (fieldMask >>> FIELDS.length) != 0) {
+            throw new IllegalArgumentException("Invalid timeseries header");
+        }
+        // Checked before allocating, so a corrupt point count cannot ask for more heap than the entry could fill
+        long bytes = (long) points * (Long.BYTES + (long) Integer.bitCount(fieldMask) * Float.BYTES);
+        if (bytes > in.remaining()) {
+            throw new IllegalArgumentException("Timeseries of " + points + " points exceeds the entry");
+        }
+        long[] times = new long[points];
+        in.asLongBuffer().get(times);
+        in.position(in.position() + points * Long.BYTES);
+        float[][] columns = new float[FIELDS.length][];
+        for (ForecastField field : FIELDS) {
+            if ((fieldMask & 1 << field.ordinal()) != 0) {
+                float[] column = new float[points];
+                in.asFloatBuffer().get(column);
+                in.position(in.position() + points * Float.BYTES);
+                columns[field.ordinal()] = column;
+            }
+        }
+
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(expiresAt)
+            .lastModified(lastModified)
+            .build();
+    }
+}
@@ -1,13 +1,36 @@
 package com.spond.forecastservice;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 class SpondForecastServiceApplicationTests {
 
+	@Autowired
+	@Qualifier("applicationTaskExecutor")
+	Executor taskExecutor;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	@EnabledForJreRange(min = JRE.JAVA_21)
+	void when_virtualThreadsEnabled_TasksRunOnVirtualThreads() throws Exception {
+		CompletableFuture<Thread> thread = CompletableFuture.supplyAsync(Thread::currentThread, taskExecutor);
+
+		//Thread.isVirtual is only part of the api from Java 21 on
+		assertThat(Thread.class.getMethod("isVirtual").invoke(thread.get(5, TimeUnit.SECONDS))).isEqualTo(true);
+	}
+
 }
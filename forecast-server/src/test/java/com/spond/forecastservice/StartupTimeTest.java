@@ -0,0 +1,121 @@
+package com.spond.forecastservice;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards against startup regressions in what our own code does while the context refreshes, e.g. a bean that calls
+ * MET or loads a large file. The context is started once to load the classes, class loading is what the cds and aot
+ * builds address, and measured on the second start. The time our own beans take to instantiate hardly depends on the
+ * machine and is checked by every build. The wall clock budget does depend on it, so that check only runs with
+ * {@code mvn -pl forecast-server test -Pstartup}. Override the budgets with e.g. {@code -Dforecast.startup.budget=PT1S}.
+ */
+class StartupTimeTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeTest.class);
+
+    //A plain JVM without cds or aot, in the same JVM as the other tests, see the README
+    private static final Duration BUDGET = Duration.parse(System.getProperty("forecast.startup.budget", "PT5S"));
+    private static final Duration BEAN_BUDGET = Duration.parse(System.getProperty("forecast.startup.bean-budget", "PT0.5S"));
+
+    @Test
+    void when_startedAgain_NoSlowBeans() {
+        Startup startup = startTwice();
+
+        assertThat(startup.ownBeanTimes()).allSatisfy((bean, time) -> assertThat(time).as(bean).isLessThan(BEAN_BUDGET));
+    }
+
+    @Test
+    @Tag("startup")
+    void when_startedAgain_ReadyWithinBudget() {
+        Startup startup = startTwice();
+
+        assertThat(startup.readyIn()).isLessThan(BUDGET);
+    }
+
+    private static Startup startTwice() {
+        start(new BufferingApplicationStartup(1), new AtomicLong()).close();
+
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10_000);
+        AtomicLong readyNanos = new AtomicLong();
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(applicationStartup, readyNanos)) {
+            Duration readyIn = Duration.ofNanos(readyNanos.get() - start);
+            Map<String, Duration> ownBeanTimes = ownBeanTimes(context, applicationStartup.getBufferedTimeline());
+            log.info("Ready to serve in {} ms, slowest beans: {}", readyIn.toMillis(), ownBeanTimes.entrySet().stream()
+                .sorted(Map.Entry.<String, Duration>comparingByValue().reversed())
+                .limit(5)
+                .map(bean -> bean.getKey() + " " + bean.getValue().toMillis() + " ms")
+                .toList());
+            return new Startup(readyIn, ownBeanTimes);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(BufferingApplicationStartup applicationStartup,
+                                                        AtomicLong readyNanos) {
+        return new SpringApplicationBuilder(SpondForecastServiceApplication.class)
+            .applicationStartup(applicationStartup)
+            .listeners(event -> {
+                if (event instanceof ApplicationReadyEvent) {
+                    readyNanos.set(System.nanoTime());
+                }
+            })
+            //Nothing in the background, so only startup itself is measured and MET is never called
+            .run("--server.port=0", "--forecast.cache.snapshot.enabled=false", "--forecast.cache.refresh.enabled=false",
+                "--forecast.prefetch.enabled=false");
+    }
+
+    /**
+     * Time spent instantiating each of our own beans, without the time spent on the beans it depends on.
+     */
+    private static Map<String, Duration> ownBeanTimes(ConfigurableApplicationContext context, StartupTimeline timeline) {
+        Map<Long, Duration> nestedTimes = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            Long parentId = event.getStartupStep().getParentId();
+            if (parentId != null) {
+                nestedTimes.merge(parentId, event.getDuration(), Duration::plus);
+            }
+        }
+        Map<String, Duration> ownBeanTimes = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            StartupStep step = event.getStartupStep();
+            String beanName = beanName(step);
+            if (step.getName().equals("spring.beans.instantiate") && isOwnBean(context, beanName)) {
+                ownBeanTimes.put(beanName, event.getDuration().minus(nestedTimes.getOrDefault(step.getId(), Duration.ZERO)));
+            }
+        }
+        return ownBeanTimes;
+    }
+
+    private static boolean isOwnBean(ConfigurableApplicationContext context, String beanName) {
+        Class<?> type = beanName != null && context.getBeanFactory().containsBean(beanName) ? context.getType(beanName) : null;
+        return type != null && type.getName().startsWith("com.spond.");
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private record Startup(Duration readyIn, Map<String, Duration> ownBeanTimes) {
+    }
+}
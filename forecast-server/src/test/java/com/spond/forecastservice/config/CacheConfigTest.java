@@ -0,0 +1,104 @@
+package com.spond.forecastservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheConfigTest {
+
+    WeatherCacheProperties properties;
+
+    CachedLocationIndex cachedLocationIndex;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherCacheProperties();
+        properties.setStaleIfError(Duration.ofHours(1));
+        properties.getRefresh().setStaleWhileRevalidate(Duration.ofMinutes(10));
+        LocationProperties locationProperties = new LocationProperties();
+        cachedLocationIndex = new CachedLocationIndex(new LocationGrid(locationProperties), locationProperties);
+    }
+
+    @Test
+    void when_put_ExpiresAfterExpiresAtPlusLongestStaleWindow() {
+        Cache<Long, CachedWeatherData> cache = cache();
+
+        cache.put(1L, entry(Instant.now().plus(Duration.ofMinutes(30)), 96));
+
+        long expiresAfter = cache.policy().expireVariably().orElseThrow().getExpiresAfter(1L, TimeUnit.SECONDS).orElseThrow();
+        assertThat(expiresAfter).isBetween(Duration.ofMinutes(89).toSeconds(), Duration.ofMinutes(90).toSeconds());
+    }
+
+    @Test
+    void when_put_pastStaleWindows_NotKept() {
+        Cache<Long, CachedWeatherData> cache = cache();
+
+        cache.put(1L, entry(Instant.now().minus(Duration.ofHours(2)), 96));
+
+        assertThat(cache.getIfPresent(1L)).isNull();
+    }
+
+    @Test
+    void when_revalidated_ExpiryFollowsNewExpiresAt() {
+        Cache<Long, CachedWeatherData> cache = cache();
+        cache.put(1L, entry(Instant.now().minus(Duration.ofMinutes(30)), 96));
+
+        cache.put(1L, entry(Instant.now().plus(Duration.ofHours(2)), 96));
+
+        long expiresAfter = cache.policy().expireVariably().orElseThrow().getExpiresAfter(1L, TimeUnit.MINUTES).orElseThrow();
+        assertThat(expiresAfter).isBetween(179L, 180L);
+    }
+
+    @Test
+    void when_putBeyondMaximumWeight_EvictsDownToMaximumWeight() {
+        properties.setMaximumWeight(DataSize.ofKilobytes(200));
+        Cache<Long, CachedWeatherData> cache = cache();
+
+        for (long key = 0; key < 100; key++) {
+            cache.put(key, entry(Instant.now().plus(Duration.ofHours(1)), 96));
+        }
+        cache.cleanUp();
+
+        long weight = cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertThat(weight).isLessThanOrEqualTo(DataSize.ofKilobytes(200).toBytes());
+        assertThat(cache.estimatedSize()).isBetween(1L, 99L);
+    }
+
+    @Test
+    void when_weigh_MorePoints_Heavier() {
+        assertThat(CacheConfig.weigh(entry(Instant.now(), 96)))
+            .isGreaterThan(CacheConfig.weigh(entry(Instant.now(), 48)))
+            .isGreaterThan(CacheConfig.weigh(entry(Instant.now(), 0)));
+    }
+
+    private Cache<Long, CachedWeatherData> cache() {
+        return new CacheConfig().weatherDataCache(cachedLocationIndex, properties, new SimpleMeterRegistry());
+    }
+
+    private static CachedWeatherData entry(Instant expiresAt, int points) {
+        long[] times = new long[points];
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[points];
+        columns[ForecastField.WIND_SPEED.ordinal()] = new float[points];
+        for (int i = 0; i < points; i++) {
+            times[i] = 1732870800L + i * 3600L;
+        }
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(expiresAt)
+            .build();
+    }
+}
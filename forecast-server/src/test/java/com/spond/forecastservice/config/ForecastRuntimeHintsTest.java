@@ -0,0 +1,42 @@
+package com.spond.forecastservice.config;
+
+import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.dto.ForecastWindowDto;
+import com.spond.forecastservice.externalmodel.Details;
+import com.spond.forecastservice.externalmodel.WeatherData;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForecastRuntimeHintsTest {
+
+    @Test
+    void when_registerHints_SerializedTypesAndNestedTypesRegistered() {
+        RuntimeHints hints = new RuntimeHints();
+
+        new ForecastRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onType(ForecastDto.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(ForecastWindowDto.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(WeatherData.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Details.class)).accepts(hints);
+    }
+
+    @Test
+    void when_registerHints_CaffeineClassesOfEveryCacheRegistered() throws Exception {
+        RuntimeHints hints = new RuntimeHints();
+
+        new ForecastRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        //The classes Caffeine picks for the weather cache, the response cache and the client budgets
+        for (String name : new String[]{"SSSMWA", "PSWMW", "SSSMS", "PSMS", "SSMSA", "PSAMS"}) {
+            Class<?> type = Class.forName("com.github.benmanes.caffeine.cache." + name);
+            assertThat(RuntimeHintsPredicates.reflection().onType(type)
+                .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS))
+                .accepts(hints);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.spond.forecastservice.config;
+
+import com.spond.forecastservice.config.MetClientHttpRequestFactory.CallHandle;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetClientHttpRequestFactoryTest {
+
+    private HttpServer server;
+    private MetClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        requestFactory = new RestTemplateConfig().metClientHttpRequestFactory(new MetApiProperties());
+        restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void when_call_finished_AbortTaskCancelled() {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/";
+
+        for (int i = 0; i < 10; i++) {
+            String response = MetClientHttpRequestFactory.call(new CallHandle(null),
+                () -> restTemplate.getForObject(url, String.class));
+            assertThat(response).isEqualTo("ok");
+        }
+
+        assertThat(requestFactory.pendingTimeouts()).isZero();
+    }
+}
@@ -0,0 +1,172 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.RateLimitProperties;
+import com.spond.forecastservice.controller.exception.RateLimitedException;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClientAdmissionTest {
+
+    RateLimitProperties properties;
+    MetApiService metApiService;
+    AtomicLong now;
+    SimpleMeterRegistry meterRegistry;
+    ClientAdmission admission;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setRequests(new RateLimitProperties.Budget(10, 5));
+        properties.setMisses(new RateLimitProperties.Budget(1, 2));
+        metApiService = mock(MetApiService.class);
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(true);
+        now = new AtomicLong(1_000_000_000L);
+        meterRegistry = new SimpleMeterRegistry();
+        admission = new ClientAdmission(properties, metApiService, new LocationGrid(new LocationProperties()), now::get);
+        admission.bindTo(meterRegistry);
+    }
+
+    @Test
+    void when_admit_requestBudgetUsedUp_RateLimitedUntilRefilled() {
+        for (int i = 0; i < 5; i++) {
+            admission.admit(request("10.0.0.1", null), event(60.05, 10.87));
+        }
+
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), event(60.05, 10.87)))
+            .isInstanceOfSatisfying(RateLimitedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        //Other clients have budgets of their own
+        assertThatCode(() -> admission.admit(request("10.0.0.2", null), event(60.05, 10.87))).doesNotThrowAnyException();
+
+        now.addAndGet(Duration.ofMillis(100).toNanos());
+        assertThatCode(() -> admission.admit(request("10.0.0.1", null), event(60.05, 10.87))).doesNotThrowAnyException();
+        assertThat(meterRegistry.get(ClientAdmission.RATE_LIMITED).tag("budget", "requests").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void when_admit_uncachedLocations_StricterMissBudget() {
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(false);
+        admission.admit(request("10.0.0.1", null), event(60.05, 10.87));
+        admission.admit(request("10.0.0.1", null), event(61.0, 11.0));
+
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), event(62.0, 12.0)))
+            .isInstanceOf(RateLimitedException.class)
+            .hasMessage("Too many forecasts of locations that are not cached!");
+
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(true);
+        assertThatCode(() -> admission.admit(request("10.0.0.1", null), event(60.05, 10.87))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void when_admit_missBudgetUsedUp_RequestTokenHandedBack() {
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(false);
+        admission.admit(request("10.0.0.1", null), event(60.05, 10.87));
+        admission.admit(request("10.0.0.1", null), event(61.0, 11.0));
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), event(62.0, 12.0)))
+                .hasMessage("Too many forecasts of locations that are not cached!");
+        }
+
+        //Only the two admitted requests were taken from the burst of 5
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            admission.admit(request("10.0.0.1", null), event(60.05, 10.87));
+        }
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), event(60.05, 10.87)))
+            .hasMessage("Too many forecast requests!");
+    }
+
+    @Test
+    void when_admit_apiKey_ClientToldApartByKeyNotAddress() {
+        properties.setApiKeys(Set.of("integration-a", "integration-b"));
+        for (int i = 0; i < 5; i++) {
+            admission.admit(request("10.0.0.1", "integration-a"), event(60.05, 10.87));
+        }
+
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.2", "integration-a"), event(60.05, 10.87)))
+            .isInstanceOf(RateLimitedException.class);
+        assertThatCode(() -> admission.admit(request("10.0.0.1", "integration-b"), event(60.05, 10.87)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void when_admit_unknownApiKeys_RotatingKeysShareTheAddressBudget() {
+        properties.setApiKeys(Set.of("integration-a"));
+        for (int i = 0; i < 5; i++) {
+            admission.admit(request("10.0.0.1", "rotated-" + i), event(60.05, 10.87));
+        }
+
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", "rotated-5"), event(60.05, 10.87)))
+            .isInstanceOf(RateLimitedException.class);
+        assertThatCode(() -> admission.admit(request("10.0.0.1", "integration-a"), event(60.05, 10.87)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void when_admit_batch_OneRequestAndAMissPerDistinctUncachedLocation() {
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(false);
+        admission.admit(request("10.0.0.1", null), List.of(event(60.05, 10.87), event(60.05, 10.87)));
+        admission.admit(request("10.0.0.1", null), List.of(event(61.0, 11.0)));
+
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), List.of(event(62.0, 12.0))))
+            .isInstanceOfSatisfying(RateLimitedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+    }
+
+    @Test
+    void when_admit_batchLargerThanBurst_AdmittedOnlyWithFullBudget() {
+        when(metApiService.isCached(anyDouble(), anyDouble())).thenReturn(false);
+        List<Event> batch = List.of(event(60.0, 10.0), event(61.0, 11.0), event(62.0, 12.0), event(63.0, 13.0));
+
+        admission.admit(request("10.0.0.1", null), batch);
+
+        //The batch left the budget four misses in debt
+        assertThatThrownBy(() -> admission.admit(request("10.0.0.1", null), batch))
+            .isInstanceOfSatisfying(RateLimitedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(4));
+    }
+
+    @Test
+    void when_admit_disabled_AlwaysAdmitted() {
+        properties.setEnabled(false);
+
+        for (int i = 0; i < 20; i++) {
+            admission.admit(request("10.0.0.1", null), event(60.05, 10.87));
+        }
+    }
+
+    private MockHttpServletRequest request(String address, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader(properties.getApiKeyHeader(), apiKey);
+        }
+        return request;
+    }
+
+    private static Event event(double latitude, double longitude) {
+        return Event.builder()
+            .latitude(latitude)
+            .longitude(longitude)
+            .build();
+    }
+}
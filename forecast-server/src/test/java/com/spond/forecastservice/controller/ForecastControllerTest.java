@@ -1,34 +1,92 @@
 package com.spond.forecastservice.controller;
 
+import com.spond.forecastservice.config.BatchProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.controller.exception.RateLimitedException;
 import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.dto.EventForecastDto;
 import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.dto.ForecastStatus;
+import com.spond.forecastservice.dto.ForecastWindowDto;
+import com.spond.forecastservice.metrics.ForecastMetrics;
 import com.spond.forecastservice.service.ForecastService;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.MetApiUnavailableException;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 @WebMvcTest(controllers = ForecastController.class)
+@Import({ForecastResponseCache.class, LocationGrid.class, LocationProperties.class, WeatherCacheProperties.class,
+    MetApiProperties.class, ForecastControllerTest.MetricsConfig.class})
 class ForecastControllerTest {
 
     @Autowired
     protected MockMvc mockMvc;
 
+    @Autowired
+    ForecastResponseCache forecastResponseCache;
+
     @MockBean
     ForecastService forecastService;
 
+    @MockBean
+    ClientAdmission clientAdmission;
+
+    @Autowired
+    SimpleMeterRegistry meterRegistry;
+
+    @Autowired
+    ForecastMetrics forecastMetrics;
+
+    @Autowired
+    LocationGrid locationGrid;
+
+    @BeforeEach
+    void setUp() {
+        forecastResponseCache.invalidateAll();
+    }
+
 
     @Test
     void when_latitudeNotSet_validationError() throws Exception {
@@ -86,7 +144,7 @@ class ForecastControllerTest {
     void when_eventHasEnded_ValidationError() throws Exception {
         Instant yesterday = Instant.now().minus(1, ChronoUnit.DAYS);
         Instant yesterdayPlus10M = yesterday.plus(10, ChronoUnit.MINUTES);
-        when(forecastService.findForecast(any(Event.class))).thenCallRealMethod();
+        validateWithRealService();
         mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + yesterday + "&endTime=" + yesterdayPlus10M)
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().is4xxClientError())
@@ -99,7 +157,7 @@ class ForecastControllerTest {
     void when_eventStartsInMoreThan7Days_ValidationError() throws Exception {
         Instant tenDaysFromNow = Instant.now().plus(10, ChronoUnit.DAYS);
         Instant elevenDaysFromNow = tenDaysFromNow.plus(1, ChronoUnit.DAYS);
-        when(forecastService.findForecast(any(Event.class))).thenCallRealMethod();
+        validateWithRealService();
         mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + tenDaysFromNow + "&endTime=" + elevenDaysFromNow)
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().is4xxClientError())
@@ -112,17 +170,238 @@ class ForecastControllerTest {
     void when_getSongWritersByISWCs_success() throws Exception {
         Instant now = Instant.now();
         Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
-        when(forecastService.findForecast(Event.builder()
+        Event event = Event.builder()
             .startTime(now)
             .endTime(tomorrow)
             .latitude(60.05)
             .longitude(10.87)
-            .build()))
+            .build();
+        CachedWeatherData cachedData = cachedData();
+        when(forecastService.lookupForecast(event)).thenReturn(cachedData);
+        when(forecastService.toForecast(cachedData, event, false))
             .thenReturn(ForecastDto.builder().airTemperature(-10.0).windSpeed(3.6).build());
+        long timedBefore = findForecastTimer().count();
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + tomorrow)
             .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
             .andExpect(jsonPath("$.airTemperature").value("-10.0"))
-            .andExpect(jsonPath("$.windSpeed").value("3.6"));
+            .andExpect(jsonPath("$.windSpeed").value("3.6"))
+            .andExpect(jsonPath("$.window").doesNotExist());
+
+        //The lookup and building the response are both timed
+        assertThat(findForecastTimer().count()).isEqualTo(timedBefore + 1);
+    }
+
+    @Test
+    void when_getForecast_success_ReturnsValidatorsAndCacheControl() throws Exception {
+        Instant now = Instant.now();
+        CachedWeatherData cachedData = cachedData();
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData);
+        when(forecastService.toForecast(any(CachedWeatherData.class), any(Event.class), eq(false)))
+            .thenReturn(ForecastDto.builder().airTemperature(-10.0).windSpeed(3.6).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + now.plus(1, ChronoUnit.DAYS)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag(cachedData)))
+            .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Fri, 29 Nov 2024 13:34:26 GMT"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, matchesPattern("max-age=(59|60), public")));
+    }
+
+    @Test
+    void when_getForecast_ifNoneMatchCurrent_NotModifiedWithoutBuildingForecast() throws Exception {
+        Instant now = Instant.now();
+        CachedWeatherData cachedData = cachedData();
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + now.plus(1, ChronoUnit.DAYS))
+                .header(HttpHeaders.IF_NONE_MATCH, eTag(cachedData)))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag(cachedData)))
+            .andExpect(content().string(""));
+        verify(forecastService, never()).toForecast(any(CachedWeatherData.class), any(Event.class), anyBoolean());
+    }
+
+    @Test
+    void when_getForecast_ifModifiedSinceLastModified_NotModified() throws Exception {
+        Instant now = Instant.now();
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + now.plus(1, ChronoUnit.DAYS))
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 29 Nov 2024 13:34:26 GMT"))
+            .andExpect(status().isNotModified());
+        verify(forecastService, never()).toForecast(any(CachedWeatherData.class), any(Event.class), anyBoolean());
+    }
+
+    @Test
+    void when_getForecast_sameLocationAndForecastPointAgain_ServedFromResponseCache() throws Exception {
+        Instant now = Instant.now();
+        CachedWeatherData cachedData = cachedData();
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData);
+        when(forecastService.toForecast(any(CachedWeatherData.class), any(Event.class), eq(false)))
+            .thenReturn(ForecastDto.builder().airTemperature(-10.0).windSpeed(3.6).build());
+
+        for (int i = 0; i < 3; i++) {
+            //Different events starting closest to the same point of the same location share the response
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now.plusSeconds(i) + "&endTime=" + now.plus(1, ChronoUnit.DAYS)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.airTemperature").value("-10.0"));
+        }
+        verify(forecastService, times(1)).toForecast(any(CachedWeatherData.class), any(Event.class), eq(false));
+    }
+
+    @Test
+    void when_getForecast_forecastChanged_ResponseRebuilt() throws Exception {
+        Instant now = Instant.now();
+        CachedWeatherData cachedData = cachedData(now.getEpochSecond(), -10.0f);
+        CachedWeatherData changedData = cachedData(now.getEpochSecond(), -8.0f);
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData, changedData);
+        when(forecastService.toForecast(eq(cachedData), any(Event.class), eq(false)))
+            .thenReturn(ForecastDto.builder().airTemperature(-10.0).build());
+        when(forecastService.toForecast(eq(changedData), any(Event.class), eq(false)))
+            .thenReturn(ForecastDto.builder().airTemperature(-8.0).build());
+
+        String url = "/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + now.plus(1, ChronoUnit.DAYS);
+        mockMvc.perform(MockMvcRequestBuilders.get(url))
+            .andExpect(jsonPath("$.airTemperature").value("-10.0"));
+        mockMvc.perform(MockMvcRequestBuilders.get(url))
+            .andExpect(jsonPath("$.airTemperature").value("-8.0"));
+    }
+
+    @Test
+    void when_getForecast_windowRequested_ReturnsWindow() throws Exception {
+        Instant now = Instant.now();
+        Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
+        when(forecastService.lookupForecast(any(Event.class))).thenReturn(cachedData());
+        when(forecastService.toForecast(any(CachedWeatherData.class), any(Event.class), eq(true)))
+            .thenReturn(ForecastDto.builder().airTemperature(-10.0).windSpeed(3.6)
+                .window(ForecastWindowDto.builder().minAirTemperature(-12.5).maxWindSpeed(8.1).build())
+                .build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + tomorrow + "&window=true")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+            .andExpect(jsonPath("$.airTemperature").value("-10.0"))
+            .andExpect(jsonPath("$.window.minAirTemperature").value("-12.5"))
+            .andExpect(jsonPath("$.window.maxWindSpeed").value("8.1"));
+    }
+
+    @Test
+    void when_upstreamTimesOut_GatewayTimeout() throws Exception {
+        Instant now = Instant.now();
+        Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
+        when(forecastService.lookupForecast(any(Event.class)))
+            .thenThrow(new MetApiTimeoutException("Timed out calling met", null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + tomorrow)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isGatewayTimeout())
+            .andExpect(jsonPath("$.code").value("UPSTREAM_TIMEOUT"))
+            .andExpect(jsonPath("$.message").value("Timed out calling met"));
+    }
+
+    @Test
+    void when_upstreamUnavailable_ServiceUnavailable() throws Exception {
+        Instant now = Instant.now();
+        Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
+        when(forecastService.lookupForecast(any(Event.class)))
+            .thenThrow(new MetApiUnavailableException("Circuit breaker open, not calling met"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast?latitude=60.05&longitude=10.87&startTime=" + now + "&endTime=" + tomorrow)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(jsonPath("$.code").value("UPSTREAM_UNAVAILABLE"))
+            .andExpect(jsonPath("$.message").value("Circuit breaker open, not calling met"));
+    }
+
+    @Test
+    void when_getForecasts_batch_ReturnsItemStatusesInRequestOrder() throws Exception {
+        Instant now = Instant.now();
+        Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
+        Event event = Event.builder()
+            .startTime(now)
+            .endTime(tomorrow)
+            .latitude(60.05)
+            .longitude(10.87)
+            .build();
+        when(forecastService.findForecasts(List.of(event, event)))
+            .thenReturn(List.of(
+                EventForecastDto.builder().status(ForecastStatus.OK)
+                    .forecast(ForecastDto.builder().airTemperature(-10.0).windSpeed(3.6).build()).build(),
+                EventForecastDto.builder().status(ForecastStatus.VALIDATION_ERROR).message("Event has already ended!").build()));
+
+        String body = "[{\"latitude\":60.05,\"longitude\":10.87,\"startTime\":\"" + now + "\",\"endTime\":\"" + tomorrow + "\"},"
+            + "{\"latitude\":60.05,\"longitude\":10.87,\"startTime\":\"" + now + "\",\"endTime\":\"" + tomorrow + "\"}]";
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/events/forecast")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("OK"))
+            .andExpect(jsonPath("$[0].forecast.airTemperature").value("-10.0"))
+            .andExpect(jsonPath("$[1].status").value("VALIDATION_ERROR"))
+            .andExpect(jsonPath("$[1].message").value("Event has already ended!"))
+            .andExpect(jsonPath("$[1].forecast").doesNotExist());
+    }
+
+    @Test
+    void when_clientOverBudget_TooManyRequestsWithRetryAfter() throws Exception {
+        doThrow(new RateLimitedException("Too many forecast requests!", Duration.ofMillis(1500)))
+            .when(clientAdmission).admit(any(), any(Event.class));
+        Instant now = Instant.now();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", now.toString())
+                .param("endTime", now.plus(1, ChronoUnit.HOURS).toString()))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+            .andExpect(jsonPath("$.code").value("RATE_LIMITED"))
+            .andExpect(jsonPath("$.message").value("Too many forecast requests!"));
+        verify(forecastService, never()).lookupForecast(any());
+    }
+
+    private static CachedWeatherData cachedData() {
+        return cachedData(Instant.now().getEpochSecond(), -10.0f);
+    }
+
+    private static CachedWeatherData cachedData(long epochSecond, float airTemperature) {
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[]{airTemperature};
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(new long[]{epochSecond}, columns))
+            .expiresAt(Instant.now().plusSeconds(60))
+            .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
+            .build();
+    }
+
+    private static String eTag(CachedWeatherData cachedData) {
+        return "W/\"" + Long.toHexString(cachedData.timeseries().contentHash()) + "\"";
+    }
+
+    //Looks events up through a real service, so they go through the real validation
+    private void validateWithRealService() {
+        ForecastService realService = new ForecastService(mock(MetApiService.class), locationGrid,
+            new BatchProperties(), forecastMetrics, Runnable::run);
+        when(forecastService.lookupForecast(any(Event.class)))
+            .thenAnswer(invocation -> realService.lookupForecast(invocation.getArgument(0)));
+    }
+
+    private Timer findForecastTimer() {
+        //The context and its registry are shared by every test of the class
+        return meterRegistry.get(ForecastMetrics.FIND_FORECAST).tag("type", "single").timer();
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ForecastMetrics forecastMetrics(SimpleMeterRegistry meterRegistry) {
+            return new ForecastMetrics(meterRegistry);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.spond.forecastservice.controller;
+
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.controller.exception.ErrorCode;
+import com.spond.forecastservice.controller.exception.PeerRequestRejectedException;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.cluster.PeerCacheClient;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PeerCacheControllerTest {
+
+    MetApiService metApiService;
+    PeerCacheClient peerCacheClient;
+    LocationGrid locationGrid;
+    PeerCacheController controller;
+
+    @BeforeEach
+    void setUp() {
+        metApiService = mock(MetApiService.class);
+        peerCacheClient = mock(PeerCacheClient.class);
+        locationGrid = new LocationGrid(new LocationProperties());
+        controller = new PeerCacheController(metApiService, locationGrid, peerCacheClient,
+            new LocationProperties(), new MetApiProperties());
+        when(peerCacheClient.isPeer("cluster-secret")).thenReturn(true);
+    }
+
+    @Test
+    void when_getEntry_noClusterSecret_ForbiddenWithoutCallingUpstream() {
+        long key = locationGrid.toKey(60.05, 10.87);
+        when(peerCacheClient.isOwnedBySelf(key)).thenReturn(true);
+
+        assertThatThrownBy(() -> controller.getEntry(key, "guessed"))
+            .isInstanceOfSatisfying(PeerRequestRejectedException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.FORBIDDEN));
+        verify(metApiService, never()).getOwnedForecast(anyLong());
+    }
+
+    @Test
+    void when_getEntry_keyOwnedByAnotherReplica_RejectedWithoutCallingUpstream() {
+        long key = locationGrid.toKey(60.05, 10.87);
+        when(peerCacheClient.isOwnedBySelf(key)).thenReturn(false);
+
+        assertThatThrownBy(() -> controller.getEntry(key, "cluster-secret"))
+            .isInstanceOfSatisfying(PeerRequestRejectedException.class, e -> {
+                assertThat(e.getErrorCode()).isEqualTo(ErrorCode.NOT_OWNER);
+                assertThat(e.getStatus().value()).isEqualTo(PeerCacheClient.MISDIRECTED_REQUEST);
+            });
+        verify(metApiService, never()).getOwnedForecast(anyLong());
+    }
+}
@@ -0,0 +1,104 @@
+package com.spond.forecastservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spond.forecastservice.config.BatchProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.ForecastService;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ServerTimingFilterTest {
+
+    private MetApiService metApiService;
+    private MockMvc mockMvc;
+    private Instant startTime;
+
+    @BeforeEach
+    void setUp() {
+        metApiService = mock(MetApiService.class);
+        LocationGrid locationGrid = new LocationGrid(new LocationProperties());
+        ForecastMetrics forecastMetrics = new ForecastMetrics(new SimpleMeterRegistry());
+        ForecastService forecastService = new ForecastService(metApiService, locationGrid, new BatchProperties(),
+            forecastMetrics, Runnable::run);
+        ForecastResponseCache forecastResponseCache = new ForecastResponseCache(forecastService, locationGrid,
+            new ObjectMapper().registerModule(new JavaTimeModule()), new WeatherCacheProperties());
+        mockMvc = MockMvcBuilders.standaloneSetup(new ForecastController(forecastService, forecastResponseCache,
+            mock(ClientAdmission.class), forecastMetrics))
+            .setControllerAdvice(new ServerTimingAdvice())
+            .addFilters(new ServerTimingFilter())
+            .build();
+        startTime = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(2, ChronoUnit.HOURS);
+    }
+
+    @Test
+    void when_getForecast_ServerTimingOfEveryStageOnThePath() throws Exception {
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", startTime.toString())
+                .param("endTime", startTime.plus(Duration.ofHours(2)).toString()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(ServerTimingAdvice.SERVER_TIMING, allOf(
+                containsString("validation;dur="),
+                containsString("search;dur="),
+                containsString("serialize;dur="),
+                containsString("total;dur="))));
+    }
+
+    @Test
+    void when_getForecast_notModified_ServerTimingStillReturned() throws Exception {
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData());
+        String eTag = "W/\"" + Long.toHexString(cachedData().timeseries().contentHash()) + "\"";
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", startTime.toString())
+                .param("endTime", startTime.plus(Duration.ofHours(2)).toString())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(ServerTimingAdvice.SERVER_TIMING, containsString("validation;dur=")));
+    }
+
+    private CachedWeatherData cachedData() {
+        long[] times = new long[6];
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[times.length];
+        columns[ForecastField.WIND_SPEED.ordinal()] = new float[times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = startTime.plus(i - 2, ChronoUnit.HOURS).getEpochSecond();
+            columns[ForecastField.AIR_TEMPERATURE.ordinal()][i] = 5.0f;
+            columns[ForecastField.WIND_SPEED.ordinal()][i] = 3.0f;
+        }
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(Instant.now().plus(Duration.ofMinutes(30)))
+            .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.spond.forecastservice.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ForecastTimeseriesTest {
+
+    @Test
+    void when_aggregate_everyRange_MatchesLinearScan() {
+        Random random = new Random(42);
+        int size = 37;
+        long[] times = new long[size];
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = 1_700_000_000L + i * 3600L;
+            values[i] = i % 5 == 3 ? Float.NaN : Math.round(random.nextFloat() * 400 - 200) / 10f;
+        }
+        ForecastTimeseries timeseries = timeseries(times, values);
+
+        for (int from = 0; from < size; from++) {
+            for (int to = from; to < size; to++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0;
+                int count = 0;
+                for (int i = from; i <= to; i++) {
+                    if (!Float.isNaN(values[i])) {
+                        min = Math.min(min, values[i]);
+                        max = Math.max(max, values[i]);
+                        sum += values[i];
+                        count++;
+                    }
+                }
+                ForecastAggregate aggregate = timeseries.aggregate(ForecastField.AIR_TEMPERATURE, from, to);
+                if (count == 0) {
+                    assertThat(aggregate).isNull();
+                    continue;
+                }
+                assertThat(aggregate.min()).isEqualTo(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, indexOf(values, (float) min)));
+                assertThat(aggregate.max()).isEqualTo(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, indexOf(values, (float) max)));
+                assertThat(aggregate.mean()).isCloseTo(sum / count, within(0.0001));
+            }
+        }
+    }
+
+    @Test
+    void when_aggregate_fieldNotLoaded_ReturnsNull() {
+        ForecastTimeseries timeseries = timeseries(new long[]{1_700_000_000L}, new float[]{1.5f});
+
+        assertThat(timeseries.aggregate(ForecastField.WIND_SPEED, 0, 0)).isNull();
+    }
+
+    @Test
+    void when_findWindowBounds_timesBetweenPoints_ReturnsPointsWithinWindow() {
+        ForecastTimeseries timeseries = timeseries(new long[]{3600, 7200, 10800}, new float[]{1, 2, 3});
+
+        assertThat(timeseries.findFirstIndexFrom(Instant.ofEpochSecond(3600))).isEqualTo(0);
+        assertThat(timeseries.findFirstIndexFrom(Instant.ofEpochSecond(3601))).isEqualTo(1);
+        assertThat(timeseries.findFirstIndexFrom(Instant.ofEpochSecond(10801))).isEqualTo(3);
+        assertThat(timeseries.findLastIndexUntil(Instant.ofEpochSecond(10799))).isEqualTo(1);
+        assertThat(timeseries.findLastIndexUntil(Instant.ofEpochSecond(10800))).isEqualTo(2);
+        assertThat(timeseries.findLastIndexUntil(Instant.ofEpochSecond(3599))).isEqualTo(-1);
+    }
+
+    private static ForecastTimeseries timeseries(long[] times, float[] airTemperature) {
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = airTemperature;
+        return new ForecastTimeseries(times, columns);
+    }
+
+    private static int indexOf(float[] values, float value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
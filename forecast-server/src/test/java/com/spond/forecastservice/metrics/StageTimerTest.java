@@ -0,0 +1,70 @@
+package com.spond.forecastservice.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StageTimerTest {
+
+    @AfterEach
+    void tearDown() {
+        StageTimings.unbind();
+    }
+
+    @Test
+    void when_stop_timingsBound_DurationsSummedPerStage() throws Exception {
+        StageTimings timings = StageTimings.bind();
+
+        StageTimer.start(ForecastStage.CACHE).stop();
+        StageTimer search = StageTimer.start(ForecastStage.SEARCH);
+        Thread.sleep(5);
+        search.stop();
+        long firstSearch = timings.durationNanos(ForecastStage.SEARCH);
+        StageTimer.start(ForecastStage.SEARCH).stop();
+
+        assertThat(timings.durationNanos(ForecastStage.CACHE)).isGreaterThanOrEqualTo(0);
+        assertThat(firstSearch).isGreaterThanOrEqualTo(5_000_000);
+        assertThat(timings.durationNanos(ForecastStage.SEARCH)).isGreaterThanOrEqualTo(firstSearch);
+        assertThat(timings.durationNanos(ForecastStage.MET)).isEqualTo(-1);
+        assertThat(timings.toServerTiming()).matches(
+            "cache;dur=\\d+\\.\\d{3};desc=\"Weather cache lookup\", search;dur=\\d+\\.\\d{3};desc=\"Timeseries search\", total;dur=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void when_stop_noTimingsBound_NothingCollected() {
+        StageTimer.start(ForecastStage.MET).stop();
+
+        assertThat(StageTimings.current()).isNull();
+    }
+
+    @Test
+    void when_start_notRecordingAndNoTimingsBound_SharedNoopTimer() {
+        assertThat(StageTimer.start(ForecastStage.MET)).isSameAs(StageTimer.start(ForecastStage.PARSE));
+    }
+
+    @Test
+    void when_stop_recording_StageEventCommitted(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("stages.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ForecastStageEvent.NAME);
+            recording.start();
+            StageTimer.start(ForecastStage.PARSE).stop();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events)
+            .filteredOn(event -> event.getEventType().getName().equals(ForecastStageEvent.NAME))
+            .singleElement()
+            .satisfies(event -> assertThat(event.getString("stage")).isEqualTo("parse"));
+    }
+}
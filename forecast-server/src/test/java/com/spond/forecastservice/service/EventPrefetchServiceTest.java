@@ -0,0 +1,121 @@
+package com.spond.forecastservice.service;
+
+import com.spond.forecastservice.config.PrefetchProperties;
+import com.spond.forecastservice.domain.CapacityExceededException;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.InvalidEventException;
+import com.spond.forecastservice.dto.EventRegistrationDto;
+import com.spond.forecastservice.service.external.MetApiService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EventPrefetchServiceTest {
+
+    private MetApiService metApiService;
+    private PrefetchProperties properties;
+    private EventPrefetchService service;
+
+    @BeforeEach
+    void setUp() {
+        metApiService = mock(MetApiService.class);
+        properties = new PrefetchProperties();
+        service = new EventPrefetchService(metApiService, properties, Runnable::run);
+    }
+
+    @Test
+    void when_register_someLeadTimesPassed_PrefetchesNowOnceAndAtRemainingLeadTimes() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant start = now.plus(2, ChronoUnit.HOURS);
+
+        EventRegistrationDto registration = service.register(event(60.05, 10.87, start));
+
+        assertThat(registration.id()).isNotBlank();
+        assertThat(registration.prefetchTimes()).hasSize(2);
+        assertThat(registration.prefetchTimes().get(0)).isBetween(now, Instant.now());
+        assertThat(registration.prefetchTimes().get(1))
+            .isBetween(start.minus(35, ChronoUnit.MINUTES), start.minus(30, ChronoUnit.MINUTES));
+
+        service.prefetchDue();
+
+        verify(metApiService, times(1)).prefetch(60.05, 10.87);
+    }
+
+    @Test
+    void when_prefetchDue_moreDueThanAllowedPerInterval_StartsRestInNextRuns() {
+        properties.setMaxPerInterval(2);
+        for (int i = 0; i < 3; i++) {
+            service.register(event(60.05, 10.87, Instant.now().plus(1, ChronoUnit.HOURS)));
+        }
+
+        service.prefetchDue();
+        verify(metApiService, times(2)).prefetch(60.05, 10.87);
+
+        service.prefetchDue();
+        verify(metApiService, times(3)).prefetch(60.05, 10.87);
+    }
+
+    @Test
+    void when_prefetchDue_eventUnregistered_NotPrefetched() {
+        EventRegistrationDto registration = service.register(event(60.05, 10.87, Instant.now().plus(1, ChronoUnit.HOURS)));
+        service.unregister(registration.id());
+
+        service.prefetchDue();
+
+        verifyNoInteractions(metApiService);
+        assertThat(service.getRegisteredEventCount()).isZero();
+    }
+
+    @Test
+    void when_unregister_CancelsRemainingPrefetches() {
+        for (int i = 0; i < 100; i++) {
+            EventRegistrationDto registration = service.register(
+                event(60.05, 10.87, Instant.now().plus(5, ChronoUnit.DAYS)));
+            service.unregister(registration.id());
+        }
+
+        assertThat(service.getRegisteredEventCount()).isZero();
+        assertThat(service.getScheduledTaskCount()).isZero();
+    }
+
+    @Test
+    void when_register_registryFull_CapacityExceededWithRetryAfter() {
+        properties.setMaxEvents(1);
+        properties.setLeadTimes(List.of(Duration.ofMinutes(30)));
+        service.register(event(60.05, 10.87, Instant.now().plus(1, ChronoUnit.DAYS)));
+
+        assertThatThrownBy(() -> service.register(event(60.05, 10.87, Instant.now().plus(1, ChronoUnit.DAYS))))
+            .isInstanceOfSatisfying(CapacityExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5))
+            .hasMessage("At most 1 upcoming events can be registered!");
+    }
+
+    @Test
+    void when_register_eventHasEnded_ValidationError() {
+        Instant yesterday = Instant.now().minus(1, ChronoUnit.DAYS);
+
+        assertThatThrownBy(() -> service.register(event(60.05, 10.87, yesterday)))
+            .isInstanceOf(InvalidEventException.class)
+            .hasMessage("Event has already ended!");
+    }
+
+    private static Event event(double latitude, double longitude, Instant startTime) {
+        return Event.builder()
+            .latitude(latitude)
+            .longitude(longitude)
+            .startTime(startTime)
+            .endTime(startTime.plus(2, ChronoUnit.HOURS))
+            .build();
+    }
+}
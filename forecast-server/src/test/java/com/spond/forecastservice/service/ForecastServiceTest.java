@@ -1,17 +1,37 @@
 package com.spond.forecastservice.service;
 
+import com.spond.forecastservice.config.BatchProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.domain.Event;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.dto.EventForecastDto;
+import com.spond.forecastservice.dto.ForecastDto;
+import com.spond.forecastservice.dto.ForecastStatus;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class ForecastServiceTest {
     private static List<Instant> instants;
@@ -90,4 +110,113 @@ class ForecastServiceTest {
         Instant closestTime = ForecastService.findClosestTime(instants, Instant.parse("2024-12-08T10:00:00Z"));
         assertThat(closestTime).isEqualTo(Instant.parse("2024-12-08T06:00:00Z"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void when_findForecast_cachedTimeseries_ReturnsValuesOfClosestPoint() {
+        Instant nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+        MetApiService metApiService = mock(MetApiService.class);
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData(nextHour));
+        ForecastService forecastService = forecastService(metApiService);
+
+        ForecastDto forecast = forecastService.findForecast(Event.builder()
+            .latitude(60.05)
+            .longitude(10.87)
+            .startTime(nextHour.plus(50, ChronoUnit.MINUTES))
+            .endTime(nextHour.plus(2, ChronoUnit.HOURS))
+            .build());
+
+        assertThat(forecast.airTemperature()).isEqualTo(-9.4);
+        assertThat(forecast.windSpeed()).isNull();
+        assertThat(forecast.window()).isNull();
+    }
+
+    @Test
+    void when_findWindowForecast_eventCoversPoints_AggregatesWindow() {
+        Instant nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+        MetApiService metApiService = mock(MetApiService.class);
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData(nextHour));
+        ForecastService forecastService = forecastService(metApiService);
+
+        ForecastDto forecast = forecastService.findWindowForecast(Event.builder()
+            .latitude(60.05)
+            .longitude(10.87)
+            .startTime(nextHour.minus(10, ChronoUnit.MINUTES))
+            .endTime(nextHour.plus(2, ChronoUnit.HOURS))
+            .build());
+
+        assertThat(forecast.airTemperature()).isEqualTo(-10.0);
+        assertThat(forecast.window().from()).isEqualTo(nextHour);
+        assertThat(forecast.window().to()).isEqualTo(nextHour.plus(1, ChronoUnit.HOURS));
+        assertThat(forecast.window().minAirTemperature()).isEqualTo(-10.0);
+        assertThat(forecast.window().maxAirTemperature()).isEqualTo(-9.4);
+        assertThat(forecast.window().meanAirTemperature()).isEqualTo(-9.7);
+        assertThat(forecast.window().maxWindSpeed()).isEqualTo(3.6);
+    }
+
+    @Test
+    void when_findWindowForecast_eventBetweenPoints_UsesClosestPoint() {
+        Instant nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+        MetApiService metApiService = mock(MetApiService.class);
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData(nextHour));
+        ForecastService forecastService = forecastService(metApiService);
+
+        ForecastDto forecast = forecastService.findWindowForecast(Event.builder()
+            .latitude(60.05)
+            .longitude(10.87)
+            .startTime(nextHour.plus(40, ChronoUnit.MINUTES))
+            .endTime(nextHour.plus(50, ChronoUnit.MINUTES))
+            .build());
+
+        assertThat(forecast.window().from()).isEqualTo(nextHour.plus(1, ChronoUnit.HOURS));
+        assertThat(forecast.window().minAirTemperature()).isEqualTo(-9.4);
+        assertThat(forecast.window().maxWindSpeed()).isNull();
+    }
+
+    @Test
+    void when_findForecasts_eventsShareLocation_SingleLookupAndResultsInRequestOrder() {
+        Instant nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+        MetApiService metApiService = mock(MetApiService.class);
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData(nextHour));
+        when(metApiService.getLocationForecast(59.91, 10.75))
+            .thenThrow(new MetApiTimeoutException("Timed out", null));
+        ForecastService forecastService = forecastService(metApiService);
+
+        List<EventForecastDto> forecasts = forecastService.findForecasts(List.of(
+            event(60.05, 10.87, nextHour),
+            event(59.91, 10.75, nextHour),
+            event(60.05, 10.87, nextHour.minus(2, ChronoUnit.DAYS)),
+            event(60.05001, 10.87001, nextHour.plus(1, ChronoUnit.HOURS))));
+
+        assertThat(forecasts).extracting(EventForecastDto::status).containsExactly(
+            ForecastStatus.OK, ForecastStatus.UPSTREAM_TIMEOUT, ForecastStatus.VALIDATION_ERROR, ForecastStatus.OK);
+        assertThat(forecasts.get(0).forecast().airTemperature()).isEqualTo(-10.0);
+        assertThat(forecasts.get(2).message()).isEqualTo("Event has already ended!");
+        assertThat(forecasts.get(3).forecast().airTemperature()).isEqualTo(-9.4);
+        verify(metApiService, times(1)).getLocationForecast(60.05, 10.87);
+    }
+
+    private static ForecastService forecastService(MetApiService metApiService) {
+        return new ForecastService(metApiService, new LocationGrid(new LocationProperties()), new BatchProperties(),
+            new ForecastMetrics(new SimpleMeterRegistry()), new SyncTaskExecutor());
+    }
+
+    private static CachedWeatherData cachedData(Instant firstPoint) {
+        long[] times = {firstPoint.getEpochSecond(), firstPoint.plus(1, ChronoUnit.HOURS).getEpochSecond()};
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[]{-10.0f, -9.4f};
+        columns[ForecastField.WIND_SPEED.ordinal()] = new float[]{3.6f, Float.NaN};
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(Instant.now().plusSeconds(60))
+            .build();
+    }
+
+    private static Event event(double latitude, double longitude, Instant startTime) {
+        return Event.builder()
+            .latitude(latitude)
+            .longitude(longitude)
+            .startTime(startTime)
+            .endTime(startTime.plus(1, ChronoUnit.HOURS))
+            .build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.spond.forecastservice.service;
+
+import com.spond.forecastservice.config.BatchProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.SubscriptionProperties;
+import com.spond.forecastservice.controller.ClientAdmission;
+import com.spond.forecastservice.controller.ForecastSubscriptionController;
+import com.spond.forecastservice.controller.exception.ApiExceptionHandler;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiException;
+import com.spond.forecastservice.service.external.MetApiService;
+import com.spond.forecastservice.service.external.WeatherDataUpdatedEvent;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ForecastSubscriptionServiceTest {
+
+    private MetApiService metApiService;
+    private LocationGrid locationGrid;
+    private SubscriptionProperties subscriptionProperties;
+    private ForecastSubscriptionService service;
+    private MockMvc mockMvc;
+    private Instant startTime;
+
+    @BeforeEach
+    void setUp() {
+        metApiService = mock(MetApiService.class);
+        locationGrid = new LocationGrid(new LocationProperties());
+        ForecastService forecastService = new ForecastService(metApiService, locationGrid, new BatchProperties(),
+            new ForecastMetrics(new SimpleMeterRegistry()), Runnable::run);
+        subscriptionProperties = new SubscriptionProperties();
+        service = new ForecastSubscriptionService(forecastService, metApiService, locationGrid,
+            subscriptionProperties, Runnable::run);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ForecastSubscriptionController(service, mock(ClientAdmission.class)))
+            .setControllerAdvice(new ApiExceptionHandler())
+            .build();
+        startTime = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(2, ChronoUnit.HOURS);
+    }
+
+    @Test
+    void when_subscribe_SendsCurrentForecastThenOnlyChangedOnes() throws Exception {
+        when(metApiService.getLocationForecast(60.05, 10.87)).thenReturn(cachedData(5.0f));
+        MockHttpServletResponse response = subscribe(60.05, 10.87);
+
+        assertThat(response.getContentType()).startsWith("text/event-stream");
+        assertThat(response.getContentAsString()).contains("event:forecast").contains("\"airTemperature\":5.0");
+
+        long key = locationGrid.toKey(60.05, 10.87);
+        service.onWeatherDataUpdated(new WeatherDataUpdatedEvent(key, cachedData(5.0f)));
+        service.onWeatherDataUpdated(new WeatherDataUpdatedEvent(key, cachedData(7.5f)));
+        service.onWeatherDataUpdated(new WeatherDataUpdatedEvent(locationGrid.toKey(61.0, 11.0), cachedData(9.0f)));
+
+        String stream = response.getContentAsString();
+        assertThat(stream.split("event:forecast", -1)).hasSize(3);
+        assertThat(stream).contains("\"airTemperature\":7.5").doesNotContain("\"airTemperature\":9.0");
+    }
+
+    @Test
+    void when_refreshSubscribed_manyStreamsForOneLocation_RefreshesLocationOnce() throws Exception {
+        when(metApiService.getLocationForecast(anyDouble(), anyDouble())).thenReturn(cachedData(5.0f));
+        subscribe(60.05, 10.87);
+        subscribe(60.05, 10.87);
+        subscribe(60.05, 10.87);
+        subscribe(61.0, 11.0);
+
+        service.refreshSubscribed();
+
+        assertThat(service.getSubscriptionCount()).isEqualTo(4);
+        verify(metApiService, times(1)).prefetch(60.05, 10.87);
+        verify(metApiService, times(1)).prefetch(61.0, 11.0);
+    }
+
+    @Test
+    void when_subscribe_eventEnded_ValidationErrorWithoutStream() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast/stream")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", Instant.now().minus(3, ChronoUnit.HOURS).toString())
+                .param("endTime", Instant.now().minus(1, ChronoUnit.HOURS).toString())
+                .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"));
+
+        assertThat(service.getSubscriptionCount()).isZero();
+    }
+
+    @Test
+    void when_subscribe_maxSubscriptionsOpen_ServiceUnavailableWithRetryAfter() throws Exception {
+        subscriptionProperties.setMaxSubscriptions(1);
+        when(metApiService.getLocationForecast(anyDouble(), anyDouble())).thenReturn(cachedData(5.0f));
+        subscribe(60.05, 10.87);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast/stream")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", startTime.toString())
+                .param("endTime", startTime.plus(Duration.ofHours(2)).toString()))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "30"))
+            .andExpect(jsonPath("$.code").value("CAPACITY_EXCEEDED"));
+
+        assertThat(service.getSubscriptionCount()).isEqualTo(1);
+        verify(metApiService, times(1)).getLocationForecast(anyDouble(), anyDouble());
+    }
+
+    @Test
+    void when_subscribe_upstreamFails_SlotReleased() throws Exception {
+        subscriptionProperties.setMaxSubscriptions(1);
+        when(metApiService.getLocationForecast(anyDouble(), anyDouble()))
+            .thenThrow(new MetApiException("Failed to call MET", null))
+            .thenReturn(cachedData(5.0f));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast/stream")
+                .param("latitude", "60.05")
+                .param("longitude", "10.87")
+                .param("startTime", startTime.toString())
+                .param("endTime", startTime.plus(Duration.ofHours(2)).toString()))
+            .andExpect(status().is5xxServerError());
+        subscribe(60.05, 10.87);
+
+        assertThat(service.getSubscriptionCount()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse subscribe(double latitude, double longitude) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/event/forecast/stream")
+                .param("latitude", String.valueOf(latitude))
+                .param("longitude", String.valueOf(longitude))
+                .param("startTime", startTime.toString())
+                .param("endTime", startTime.plus(Duration.ofHours(2)).toString()))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+    }
+
+    private CachedWeatherData cachedData(float airTemperature) {
+        long[] times = new long[6];
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[times.length];
+        columns[ForecastField.WIND_SPEED.ordinal()] = new float[times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = startTime.plus(i - 2, ChronoUnit.HOURS).getEpochSecond();
+            columns[ForecastField.AIR_TEMPERATURE.ordinal()][i] = airTemperature;
+            columns[ForecastField.WIND_SPEED.ordinal()][i] = 3.0f;
+        }
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(times, columns))
+            .expiresAt(Instant.now().plus(Duration.ofMinutes(30)))
+            .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.spond.forecastservice.service.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.RestTemplateConfig;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.cluster.PeerCacheClient;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import com.spond.forecastservice.service.external.resilience.AimdConcurrencyLimiter;
+import com.spond.forecastservice.service.external.resilience.CircuitBreaker;
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import com.spond.forecastservice.service.external.resilience.HedgePolicy;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Hedging, deadlines and response parsing against a local stub of MET, so calls are really sent and aborted.
+ */
+class MetApiServiceHedgingTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService refreshExecutor;
+    //Requests the stub received, only the first one is held back for firstResponseDelayMillis
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long firstResponseDelayMillis;
+    private byte[] body;
+    private MetApiProperties metApiProperties;
+    private HedgePolicy hedgePolicy;
+    private SimpleMeterRegistry meterRegistry;
+    private MetApiService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (InputStream input = getClass().getResourceAsStream("/compact-forecast.json")) {
+            body = input.readAllBytes();
+        }
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            try {
+                if (requests.incrementAndGet() == 1) {
+                    Thread.sleep(firstResponseDelayMillis);
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                exchange.close();
+            }
+        });
+        server.start();
+
+        metApiProperties = new MetApiProperties();
+        metApiProperties.setBaseUrl("http://localhost:" + server.getAddress().getPort() + "/compact");
+        hedgePolicy = new HedgePolicy(metApiProperties);
+        meterRegistry = new SimpleMeterRegistry();
+        hedgePolicy.bindTo(meterRegistry);
+        refreshExecutor = Executors.newCachedThreadPool();
+        LocationProperties locationProperties = new LocationProperties();
+        LocationGrid locationGrid = new LocationGrid(locationProperties);
+        RestTemplate restTemplate = new RestTemplate(new RestTemplateConfig().metClientHttpRequestFactory(metApiProperties));
+        service = new MetApiService(restTemplate, Caffeine.newBuilder().build(), locationGrid,
+            new CachedLocationIndex(locationGrid, locationProperties),
+            new MetForecastParser(new ObjectMapper(), metApiProperties), metApiProperties, new WeatherCacheProperties(),
+            new ForecastMetrics(meterRegistry), new AimdConcurrencyLimiter(metApiProperties),
+            new CircuitBreaker(metApiProperties), hedgePolicy, mock(PeerCacheClient.class), Caffeine.newBuilder().build(), event -> {
+            }, refreshExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    @Test
+    void when_getLocationForecast_callStalls_HedgeAnswersAndStalledCallIsAborted() {
+        //Recent calls took 10ms, so the hedge goes out after the minimum delay of 50ms
+        for (int i = 0; i < metApiProperties.getHedging().getMinSamples(); i++) {
+            hedgePolicy.onResponse(Duration.ofMillis(10).toNanos());
+        }
+        firstResponseDelayMillis = 5_000;
+
+        long start = System.nanoTime();
+        CachedWeatherData response = service.getLocationForecast(60.05, 10.87);
+
+        assertThat(response.timeseries().isEmpty()).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(meterRegistry.get(HedgePolicy.HEDGES).tag("result", "won").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get(ForecastMetrics.MET_REQUESTS).tag("status", "aborted").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void when_getLocationForecast_noLatenciesRecorded_NotHedged() {
+        firstResponseDelayMillis = 200;
+
+        CachedWeatherData response = service.getLocationForecast(60.05, 10.87);
+
+        assertThat(response.timeseries().isEmpty()).isFalse();
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void when_getLocationForecast_requestDeadlinePasses_CallAbortedWithTimeout() {
+        metApiProperties.getHedging().setEnabled(false);
+        firstResponseDelayMillis = 5_000;
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> Deadline.call(Deadline.after(Duration.ofMillis(300)),
+            () -> service.getLocationForecast(60.05, 10.87)))
+            .isInstanceOf(MetApiTimeoutException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void when_getLocationForecast_malformedTime_MetApiException() {
+        body = """
+            {"properties":{"timeseries":[{"time":"2024-02-31T00:00:00Z","data":{}}]}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> service.getLocationForecast(60.05, 10.87))
+            .isExactlyInstanceOf(MetApiException.class);
+        assertThat(meterRegistry.get(ForecastMetrics.MET_REQUESTS).tag("status", "error").timer().count()).isEqualTo(1);
+    }
+}
@@ -1,26 +1,59 @@
 package com.spond.forecastservice.service.external;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import com.spond.forecastservice.externalmodel.WeatherData;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.cluster.PeerCacheClient;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import com.spond.forecastservice.service.external.resilience.AimdConcurrencyLimiter;
+import com.spond.forecastservice.service.external.resilience.CircuitBreaker;
+import com.spond.forecastservice.service.external.resilience.HedgePolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.time.Instant;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -32,11 +65,52 @@ class MetApiServiceTest {
     RestTemplate restTemplate;
 
     @Mock
-    Cache<String, CachedWeatherData> weatherDataCache;
+    Cache<Long, CachedWeatherData> weatherDataCache;
+
+    @Mock
+    PeerCacheClient peerCacheClient;
+
+    Cache<Long, CachedWeatherData> peerCopyCache;
+
+    LocationGrid locationGrid;
+
+    CachedLocationIndex cachedLocationIndex;
+
+    WeatherCacheProperties weatherCacheProperties;
+
+    List<Runnable> backgroundTasks;
+
+    List<Object> publishedEvents;
+
+    SimpleMeterRegistry meterRegistry;
+
+    MetApiProperties metApiProperties;
+
+    CircuitBreaker circuitBreaker;
 
-    @InjectMocks
     MetApiService service;
 
+    @BeforeEach
+    void setUp() {
+        //Revalidate expired entries on the request path unless a test enables stale-while-revalidate
+        weatherCacheProperties = new WeatherCacheProperties();
+        weatherCacheProperties.getRefresh().setStaleWhileRevalidate(Duration.ZERO);
+        backgroundTasks = new ArrayList<>();
+        publishedEvents = new ArrayList<>();
+        meterRegistry = new SimpleMeterRegistry();
+        LocationProperties locationProperties = new LocationProperties();
+        locationGrid = new LocationGrid(locationProperties);
+        cachedLocationIndex = new CachedLocationIndex(locationGrid, locationProperties);
+        MetForecastParser metForecastParser = new MetForecastParser(new ObjectMapper(), new MetApiProperties());
+        metApiProperties = new MetApiProperties();
+        circuitBreaker = new CircuitBreaker(metApiProperties);
+        peerCopyCache = Caffeine.newBuilder().build();
+        service = new MetApiService(restTemplate, weatherDataCache, locationGrid, cachedLocationIndex, metForecastParser,
+            metApiProperties, weatherCacheProperties, new ForecastMetrics(meterRegistry),
+            new AimdConcurrencyLimiter(metApiProperties), circuitBreaker, new HedgePolicy(metApiProperties), peerCacheClient, peerCopyCache, publishedEvents::add,
+            backgroundTasks::add);
+    }
+
 
     @Test
     void when_getForecast_CacheHit_ReturnsFromCache() {
@@ -44,125 +118,557 @@ class MetApiServiceTest {
         double longitude = 20.0;
 
         CachedWeatherData cachedData = CachedWeatherData.builder()
-            .data(weatherData())
+            .timeseries(ForecastTimeseries.empty())
             .expiresAt(Instant.now().plusSeconds(60))
             .build();
 
-        when(weatherDataCache.getIfPresent(anyString())).thenReturn(cachedData);
+        when(weatherDataCache.getIfPresent(anyLong())).thenReturn(cachedData);
 
-        ResponseEntity<WeatherData> response = service.getLocationForecast(latitude, longitude);
+        CachedWeatherData response = service.getLocationForecast(latitude, longitude);
 
         //assertions
-        assertThat(HttpStatus.OK).isEqualTo(response.getStatusCode());
-        assertThat(response.getBody()).isNotNull();
-        verify(weatherDataCache, times(1)).getIfPresent(anyString());
+        assertThat(response).isNotNull();
+        verify(weatherDataCache, times(1)).getIfPresent(anyLong());
         verifyNoInteractions(restTemplate);
+        assertThat(meterRegistry.get(ForecastMetrics.CACHE_LOOKUPS).tag("result", "hit").counter().count()).isEqualTo(1.0);
     }
 
     @Test
     void when_getForecast_CacheHitWithExpiredData_MakesDownstreamCall() {
         String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
         double latitude = 10.0;
         double longitude = 20.0;
 
         CachedWeatherData expiredData = CachedWeatherData.builder()
-            .data(weatherData())
+            .timeseries(ForecastTimeseries.empty())
             .expiresAt(Instant.now().minusSeconds(60))
             .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
             .build();
-        when(weatherDataCache.getIfPresent(url)).thenReturn(expiredData);
-        when(restTemplate.exchange(eq(url),
+        when(weatherDataCache.getIfPresent(key)).thenReturn(expiredData);
+        when(restTemplate.execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class))).thenReturn(ResponseEntity.ok(weatherData()));
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
 
-        ResponseEntity<WeatherData> response = service.getLocationForecast(latitude, longitude);
+        CachedWeatherData response = service.getLocationForecast(latitude, longitude);
 
         //assertions
-        assertThat(HttpStatus.OK).isEqualTo(response.getStatusCode());
-        assertThat(response.getBody()).isNotNull();
-        verify(weatherDataCache, times(1)).getIfPresent(url);
-        verify(restTemplate, times(1)).exchange(eq(url),
+        assertThat(response).isNotNull();
+        verify(weatherDataCache, times(2)).getIfPresent(key);
+        verify(restTemplate, times(1)).execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class));
+            any(RequestCallback.class),
+            anyResponseExtractor());
     }
 
     @Test
     void when_getForecast_downstreamNotModified_returnsCachedWeatherData() {
         String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
         double latitude = 10.0;
         double longitude = 20.0;
 
         CachedWeatherData cachedData = CachedWeatherData.builder()
-            .data(weatherData())
+            .timeseries(ForecastTimeseries.empty())
             .expiresAt(Instant.now().minusSeconds(60))
             .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
             .build();
 
-        when(weatherDataCache.getIfPresent(url)).thenReturn(cachedData);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(cachedData);
 
         HttpHeaders headers = new HttpHeaders();
-        ResponseEntity<WeatherData> apiResponse = new ResponseEntity<>(null, headers, HttpStatus.NOT_MODIFIED);
+        ResponseEntity<ForecastTimeseries> apiResponse = new ResponseEntity<>(ForecastTimeseries.empty(), headers, HttpStatus.NOT_MODIFIED);
 
-        when(restTemplate.exchange(eq(url),
+        when(restTemplate.execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class))).thenReturn(apiResponse);
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(apiResponse);
 
-        ResponseEntity<WeatherData> response = service.getLocationForecast(latitude, longitude);
+        CachedWeatherData response = service.getLocationForecast(latitude, longitude);
 
         //assertions
-        assertThat(HttpStatus.OK).isEqualTo(response.getStatusCode());
-        assertThat(response.getBody()).isNotNull();
-        verify(weatherDataCache, times(1)).getIfPresent(url);
-        verify(restTemplate, times(1)).exchange(eq(url),
+        assertThat(response).isNotNull();
+        verify(weatherDataCache, times(2)).getIfPresent(key);
+        verify(restTemplate, times(1)).execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class));
-        assertThat(response.getBody()).isEqualTo(weatherData());
+            any(RequestCallback.class),
+            anyResponseExtractor());
+        assertThat(response.timeseries()).isSameAs(cachedData.timeseries());
+        assertThat(response.lastModified()).isEqualTo(cachedData.lastModified());
+        assertThat(response.expiresAt()).isAfter(Instant.now());
+        verify(weatherDataCache, times(1)).put(key, response);
+        assertThat(meterRegistry.get(ForecastMetrics.CACHE_LOOKUPS).tag("result", "expired").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get(ForecastMetrics.CACHE_REVALIDATIONS).tag("result", "not_modified").counter().count())
+            .isEqualTo(1.0);
+        assertThat(meterRegistry.get(ForecastMetrics.MET_REQUESTS).tag("status", "304").timer().count()).isEqualTo(1L);
+        assertThat(publishedEvents.isEmpty()).isTrue();
     }
 
-    //TODO: add one more test where the data is modified and the cache is updated
     @Test
     void when_getForecast_downstreamModified_updatesCacheWithNewData() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+
+        CachedWeatherData cachedData = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().minusSeconds(60))
+            .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
+            .build();
+        when(weatherDataCache.getIfPresent(key)).thenReturn(cachedData);
 
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LAST_MODIFIED, "Fri, 29 Nov 2024 14:04:12 GMT");
+        headers.add(HttpHeaders.EXPIRES, "Fri, 29 Nov 2024 14:34:12 GMT");
+        ForecastTimeseries newTimeseries = timeseries();
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(new ResponseEntity<>(newTimeseries, headers, HttpStatus.OK));
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        //assertions
+        ArgumentCaptor<CachedWeatherData> updatedData = ArgumentCaptor.forClass(CachedWeatherData.class);
+        verify(weatherDataCache, times(1)).put(eq(key), updatedData.capture());
+        assertThat(updatedData.getValue().timeseries()).isSameAs(newTimeseries);
+        assertThat(updatedData.getValue().lastModified()).isEqualTo("Fri, 29 Nov 2024 14:04:12 GMT");
+        assertThat(updatedData.getValue().expiresAt()).isEqualTo(Instant.parse("2024-11-29T14:34:12Z"));
+        assertThat(response).isSameAs(updatedData.getValue());
+        assertThat(publishedEvents).isEqualTo(List.of(new WeatherDataUpdatedEvent(key, response)));
     }
 
 
     @Test
     void when_getForecast_noCacheHit_MakesCallAndUpdateCache() {
         String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
         double latitude = 10.0;
         double longitude = 20.0;
 
-        when(weatherDataCache.getIfPresent(url)).thenReturn(null);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
 
-        ResponseEntity<WeatherData> apiResponse = ResponseEntity.ok(weatherData());
-        when(restTemplate.exchange(eq(url),
+        ResponseEntity<ForecastTimeseries> apiResponse = ResponseEntity.ok(timeseries());
+        when(restTemplate.execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class))).thenReturn(apiResponse);
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(apiResponse);
+
+        CachedWeatherData response = service.getLocationForecast(latitude, longitude);
+
+        //assertions
+        assertThat(response).isNotNull();
+        verify(weatherDataCache, times(2)).getIfPresent(key);
+        verify(restTemplate, times(1)).execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor());
+        verify(weatherDataCache, times(1)).put(eq(key), any(CachedWeatherData.class));
+    }
 
-        ResponseEntity<WeatherData> response = service.getLocationForecast(latitude, longitude);
+    @Test
+    void when_getForecast_concurrentCacheMisses_MakesSingleDownstreamCall() throws Exception {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        int callers = 8;
+        CountDownLatch downstreamCalled = new CountDownLatch(1);
+        CountDownLatch releaseDownstream = new CountDownLatch(1);
+
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenAnswer(invocation -> {
+            downstreamCalled.countDown();
+            releaseDownstream.await(5, TimeUnit.SECONDS);
+            return ResponseEntity.ok(timeseries());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<CachedWeatherData>> responses = new ArrayList<>();
+            responses.add(executor.submit(() -> service.getLocationForecast(10.0, 20.0)));
+            assertThat(downstreamCalled.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < callers; i++) {
+                responses.add(executor.submit(() -> service.getLocationForecast(10.0, 20.0)));
+            }
+            //wait until every other caller is parked on the in flight call before letting it complete
+            while (service.getCoalescedRequestCount() < callers - 1) {
+                Thread.sleep(5);
+            }
+            releaseDownstream.countDown();
+
+            for (Future<CachedWeatherData> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS)).isNotNull();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
 
         //assertions
-        assertThat(HttpStatus.OK).isEqualTo(response.getStatusCode());
-        assertThat(response.getBody()).isNotNull();
-        verify(weatherDataCache, times(1)).getIfPresent(url);
-        verify(restTemplate, times(1)).exchange(eq(url),
+        verify(restTemplate, times(1)).execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor());
+        verify(weatherDataCache, times(1)).put(eq(key), any(CachedWeatherData.class));
+        assertThat(service.getCoalescedRequestCount()).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void when_getForecast_leaderFailsWithError_WaitersFailToo() throws Exception {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        CountDownLatch downstreamCalled = new CountDownLatch(1);
+        CountDownLatch releaseDownstream = new CountDownLatch(1);
+
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
             eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(WeatherData.class));
-        verify(weatherDataCache, times(1)).put(eq(url), any(CachedWeatherData.class));
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenAnswer(invocation -> {
+            downstreamCalled.countDown();
+            releaseDownstream.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CachedWeatherData> leader = executor.submit(() -> service.getLocationForecast(10.0, 20.0));
+            assertThat(downstreamCalled.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<CachedWeatherData> waiter = executor.submit(() -> service.getLocationForecast(10.0, 20.0));
+            while (service.getCoalescedRequestCount() < 1) {
+                Thread.sleep(5);
+            }
+            releaseDownstream.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(MetApiException.class);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void when_getForecast_freshNearbyLocationCached_ReturnsNearbyData() {
+        long nearbyKey = locationGrid.toKey(10.0010, 20.0010);
+        CachedWeatherData nearbyData = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().plusSeconds(60))
+            .build();
+        cachedLocationIndex.add(nearbyKey);
+        when(weatherDataCache.getIfPresent(locationGrid.toKey(10.0, 20.0))).thenReturn(null);
+        when(weatherDataCache.getIfPresent(nearbyKey)).thenReturn(nearbyData);
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        //assertions
+        assertThat(response).isSameAs(nearbyData);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void when_getForecast_nearbyLocationOutsideRadius_MakesDownstreamCall() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        cachedLocationIndex.add(locationGrid.toKey(10.01, 20.01));
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
+
+        service.getLocationForecast(10.0, 20.0);
+
+        //assertions
+        verify(restTemplate, times(1)).execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor());
+    }
+
+    @Test
+    void when_getForecast_downstreamTimesOut_ThrowsMetApiTimeoutException() {
+        String url = mockedUrl();
+        when(weatherDataCache.getIfPresent(locationGrid.toKey(10.0, 20.0))).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+
+        assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+            .isInstanceOf(MetApiTimeoutException.class)
+            .hasMessage("Timed out calling " + url);
+        verify(weatherDataCache, never()).put(anyLong(), any(CachedWeatherData.class));
+        assertThat(meterRegistry.get(ForecastMetrics.MET_REQUESTS).tag("status", "timeout").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void when_getForecast_downstreamFails_ThrowsMetApiException() {
+        String url = mockedUrl();
+        when(weatherDataCache.getIfPresent(locationGrid.toKey(10.0, 20.0))).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+            .isExactlyInstanceOf(MetApiException.class)
+            .hasMessage("Failed to call " + url);
+        assertThat(meterRegistry.get(ForecastMetrics.CACHE_LOOKUPS).tag("result", "miss").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get(ForecastMetrics.MET_REQUESTS).tag("status", "503").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void when_getForecast_recentlyExpired_ReturnsStaleDataAndRevalidatesInBackground() {
+        weatherCacheProperties.getRefresh().setStaleWhileRevalidate(Duration.ofMinutes(10));
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        CachedWeatherData staleData = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().minusSeconds(60))
+            .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
+            .build();
+        when(weatherDataCache.getIfPresent(key)).thenReturn(staleData);
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        //assertions
+        assertThat(response).isSameAs(staleData);
+        verifyNoInteractions(restTemplate);
+        assertThat(backgroundTasks.size()).isEqualTo(1);
+
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
+        backgroundTasks.get(0).run();
+
+        verify(weatherDataCache, times(1)).put(eq(key), any(CachedWeatherData.class));
+    }
+
+    @Test
+    void when_refreshAhead_recentlyReadEntryCloseToExpiry_RevalidatesInBackground() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        long idleKey = locationGrid.toKey(11.0, 21.0);
+        CachedWeatherData expiringData = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().plusSeconds(30))
+            .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
+            .build();
+        CachedWeatherData freshData = CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now().plusSeconds(3600))
+            .build();
+        ConcurrentMap<Long, CachedWeatherData> entries = new ConcurrentHashMap<>(Map.of(key, expiringData, idleKey, freshData));
+        when(weatherDataCache.getIfPresent(anyLong())).thenAnswer(invocation -> entries.get(invocation.<Long>getArgument(0)));
+        when(weatherDataCache.asMap()).thenReturn(entries);
+
+        service.getLocationForecast(10.0, 20.0);
+        service.getLocationForecast(11.0, 21.0);
+        service.refreshAhead();
+
+        //assertions
+        assertThat(backgroundTasks.size()).isEqualTo(1);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(new ResponseEntity<>(ForecastTimeseries.empty(), HttpStatus.NOT_MODIFIED));
+        backgroundTasks.get(0).run();
+
+        ArgumentCaptor<CachedWeatherData> refreshedData = ArgumentCaptor.forClass(CachedWeatherData.class);
+        verify(weatherDataCache, times(1)).put(eq(key), refreshedData.capture());
+        assertThat(refreshedData.getValue().timeseries()).isSameAs(expiringData.timeseries());
+        assertThat(refreshedData.getValue().lastModified()).isEqualTo(expiringData.lastModified());
+    }
+
+    @Test
+    void when_getForecast_downstreamFailsWithExpiredEntry_ReturnsStaleData() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        CachedWeatherData expiredData = CachedWeatherData.builder()
+            .timeseries(timeseries())
+            .expiresAt(Instant.now().minus(Duration.ofMinutes(20)))
+            .build();
+        when(weatherDataCache.getIfPresent(key)).thenReturn(expiredData);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        assertThat(response).isSameAs(expiredData);
+        assertThat(meterRegistry.get(ForecastMetrics.CACHE_LOOKUPS).tag("result", "stale_if_error").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void when_getForecast_downstreamFailsWithEntryPastStaleIfError_ThrowsMetApiException() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(CachedWeatherData.builder()
+            .timeseries(timeseries())
+            .expiresAt(Instant.now().minus(Duration.ofHours(2)))
+            .build());
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+            .isExactlyInstanceOf(MetApiException.class);
+    }
+
+    @Test
+    void when_getForecast_downstreamKeepsFailing_OpensCircuitAndFailsFast() {
+        String url = mockedUrl();
+        when(weatherDataCache.getIfPresent(locationGrid.toKey(10.0, 20.0))).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new HttpServerErrorException(HttpStatus.TOO_MANY_REQUESTS));
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+                .isExactlyInstanceOf(MetApiException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+            .isInstanceOf(MetApiUnavailableException.class)
+            .hasMessage("Circuit breaker open, not calling " + url);
+        verify(restTemplate, times(10)).execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor());
+    }
+
+    @Test
+    void when_getForecast_trialCallThrowsUnexpectedly_HandsTrialCallBack() {
+        String url = mockedUrl();
+        metApiProperties.getCircuitBreaker().setOpenDuration(Duration.ZERO);
+        when(weatherDataCache.getIfPresent(locationGrid.toKey(10.0, 20.0))).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenThrow(new HttpServerErrorException(HttpStatus.TOO_MANY_REQUESTS));
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+                .isExactlyInstanceOf(MetApiException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        doThrow(new StackOverflowError()).when(restTemplate).execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor());
+
+        //More trial calls than the half open state lets through at once, none of them may keep its permit
+        for (int i = 0; i <= metApiProperties.getCircuitBreaker().getHalfOpenCalls(); i++) {
+            assertThatThrownBy(() -> service.getLocationForecast(10.0, 20.0))
+                .isInstanceOf(StackOverflowError.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void when_prefetch_freshEntryCached_NoDownstreamCall() {
+        long key = locationGrid.toKey(10.0, 20.0);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(CachedWeatherData.builder()
+            .timeseries(timeseries())
+            .expiresAt(Instant.now().plus(Duration.ofHours(1)))
+            .build());
+
+        service.prefetch(10.0, 20.0);
+
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void when_prefetch_nothingCached_FetchesAndCaches() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
+
+        service.prefetch(10.0, 20.0);
+
+        verify(weatherDataCache, times(1)).put(eq(key), any(CachedWeatherData.class));
+    }
+
+    @Test
+    void when_getForecast_ownedByPeer_KeepsCopyOfOwnerDataWithoutDownstreamCall() {
+        long key = locationGrid.toKey(10.0, 20.0);
+        CachedWeatherData ownerData = CachedWeatherData.builder()
+            .timeseries(timeseries())
+            .expiresAt(Instant.now().plus(Duration.ofHours(1)))
+            .build();
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(peerCacheClient.fetchFromOwner(key)).thenReturn(ownerData);
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        assertThat(response).isSameAs(ownerData);
+        //Copies are kept apart from the entries this replica fetched itself
+        assertThat(peerCopyCache.getIfPresent(key)).isSameAs(ownerData);
+        verify(weatherDataCache, never()).put(anyLong(), any(CachedWeatherData.class));
+        verifyNoInteractions(restTemplate);
+        assertThat(publishedEvents).isEqualTo(List.of(new WeatherDataUpdatedEvent(key, ownerData)));
+
+        //Served from the copy until it expires
+        assertThat(service.getLocationForecast(10.0, 20.0)).isSameAs(ownerData);
+        verify(peerCacheClient, times(1)).fetchFromOwner(key);
+    }
+
+    @Test
+    void when_getForecast_ownerUnreachable_MakesDownstreamCall() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(peerCacheClient.fetchFromOwner(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
+
+        CachedWeatherData response = service.getLocationForecast(10.0, 20.0);
+
+        assertThat(response).isNotNull();
+        verify(weatherDataCache, times(1)).put(eq(key), any(CachedWeatherData.class));
+    }
+
+    @Test
+    void when_getOwnedForecast_nothingCached_CallsDownstreamWithoutAskingPeers() {
+        String url = mockedUrl();
+        long key = locationGrid.toKey(10.0, 20.0);
+        when(weatherDataCache.getIfPresent(key)).thenReturn(null);
+        when(restTemplate.execute(eq(url),
+            eq(HttpMethod.GET),
+            any(RequestCallback.class),
+            anyResponseExtractor())).thenReturn(ResponseEntity.ok(timeseries()));
+
+        CachedWeatherData response = service.getOwnedForecast(key);
+
+        assertThat(response).isNotNull();
+        verifyNoInteractions(peerCacheClient);
+    }
+
+    private static ResponseExtractor<ResponseEntity<ForecastTimeseries>> anyResponseExtractor() {
+        return ArgumentMatchers.any();
     }
 
     private static String mockedUrl() {
-        return "https://api.met.no/weatherapi/locationforecast/2.0/compact?lat=10.000000&lon=20.000000";
+        return "https://api.met.no/weatherapi/locationforecast/2.0/compact?lat=10.0000&lon=20.0000";
     }
 
-    private static WeatherData weatherData() {
-        return new WeatherData();
+    private static ForecastTimeseries timeseries() {
+        return new ForecastTimeseries(new long[]{1732870800L}, new float[ForecastField.values().length][]);
     }
 }
 
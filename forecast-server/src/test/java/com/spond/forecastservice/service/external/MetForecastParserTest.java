@@ -0,0 +1,103 @@
+package com.spond.forecastservice.service.external;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetForecastParserTest {
+
+    private static final Path COMPACT_FORECAST = Path.of("src/test/resources/compact-forecast.json");
+
+    @Test
+    void when_parse_compactForecast_ReadsEveryPointOfConfiguredFields() throws IOException {
+        MetForecastParser parser = new MetForecastParser(new ObjectMapper(), new MetApiProperties());
+
+        ForecastTimeseries timeseries;
+        try (InputStream body = Files.newInputStream(COMPACT_FORECAST)) {
+            timeseries = parser.parse(body);
+        }
+
+        assertThat(timeseries.size()).isEqualTo(88);
+        assertThat(timeseries.time(0)).isEqualTo(Instant.parse("2024-11-28T09:00:00Z"));
+        assertThat(timeseries.time(87)).isEqualTo(Instant.parse("2024-12-08T06:00:00Z"));
+        assertThat(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, 0)).isEqualTo(-2.0);
+        assertThat(timeseries.valueOrNull(ForecastField.WIND_SPEED, 0)).isEqualTo(4.5);
+        assertThat(timeseries.hasField(ForecastField.AIR_PRESSURE_AT_SEA_LEVEL)).isFalse();
+        assertThat(timeseries.valueOrNull(ForecastField.AIR_PRESSURE_AT_SEA_LEVEL, 0)).isNull();
+    }
+
+    @Test
+    void when_parse_allFieldsConfigured_ReadsEveryField() throws IOException {
+        MetApiProperties properties = new MetApiProperties();
+        properties.setFields(EnumSet.allOf(ForecastField.class));
+        MetForecastParser parser = new MetForecastParser(new ObjectMapper(), properties);
+
+        ForecastTimeseries timeseries;
+        try (InputStream body = Files.newInputStream(COMPACT_FORECAST)) {
+            timeseries = parser.parse(body);
+        }
+
+        assertThat(timeseries.valueOrNull(ForecastField.AIR_PRESSURE_AT_SEA_LEVEL, 1)).isEqualTo(1012.1);
+        assertThat(timeseries.valueOrNull(ForecastField.RELATIVE_HUMIDITY, 1)).isEqualTo(81.0);
+    }
+
+    @Test
+    void when_parse_missingValuesAndUnknownFields_SkipsThem() throws IOException {
+        MetForecastParser parser = new MetForecastParser(new ObjectMapper(), new MetApiProperties());
+        String body = """
+            {"properties":{"unknown":[1,{"a":2}],"timeseries":[
+              {"time":"2024-11-28T09:00:00Z","data":{"instant":{"details":{"air_temperature":1.5,"extra":{"x":1}}}}},
+              {"time":"2024-11-28T10:00:00+00:00","data":{"next_1_hours":{"details":{"wind_speed":9}},"instant":{"details":{"wind_speed":2.5}}}}
+            ]},"type":"Feature"}
+            """;
+
+        ForecastTimeseries timeseries = parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(timeseries.size()).isEqualTo(2);
+        assertThat(timeseries.time(1)).isEqualTo(Instant.parse("2024-11-28T10:00:00Z"));
+        assertThat(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, 0)).isEqualTo(1.5);
+        assertThat(timeseries.valueOrNull(ForecastField.WIND_SPEED, 0)).isNull();
+        assertThat(timeseries.valueOrNull(ForecastField.AIR_TEMPERATURE, 1)).isNull();
+        assertThat(timeseries.valueOrNull(ForecastField.WIND_SPEED, 1)).isEqualTo(2.5);
+    }
+
+    @Test
+    void when_parse_invalidDate_Throws() {
+        assertThatThrownBy(() -> parse("{\"time\":\"2024-02-31T00:00:00Z\"}"))
+            .isInstanceOf(JsonParseException.class)
+            .hasMessageStartingWith("Invalid time 2024-02-31T00:00:00Z");
+    }
+
+    @Test
+    void when_parse_leapDay_ConvertedLikeInstantParse() throws IOException {
+        assertThat(parse("{\"time\":\"2024-02-29T12:00:00Z\"}").time(0))
+            .isEqualTo(Instant.parse("2024-02-29T12:00:00Z"));
+    }
+
+    @Test
+    void when_parse_nullOrMissingTime_Throws() {
+        assertThatThrownBy(() -> parse("{\"time\":null}")).isInstanceOf(JsonParseException.class);
+        assertThatThrownBy(() -> parse("{\"data\":{}}")).isInstanceOf(JsonParseException.class);
+    }
+
+    private static ForecastTimeseries parse(String point) throws IOException {
+        String body = "{\"properties\":{\"timeseries\":[" + point + "]}}";
+        return new MetForecastParser(new ObjectMapper(), new MetApiProperties())
+            .parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,58 @@
+package com.spond.forecastservice.service.external.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> PEERS = List.of("http://localhost:8081", "http://localhost:8082",
+        "http://localhost:8083");
+
+    @Test
+    void when_ownerOf_sameKeyAndPeers_SameOwnerOnEveryRing() {
+        ConsistentHashRing ring = new ConsistentHashRing(PEERS, 128);
+        ConsistentHashRing otherReplica = new ConsistentHashRing(List.of(PEERS.get(2), PEERS.get(0), PEERS.get(1)), 128);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            assertThat(otherReplica.ownerOf(key)).isEqualTo(ring.ownerOf(key));
+        }
+    }
+
+    @Test
+    void when_ownerOf_manyKeys_SpreadsEvenlyOverPeers() {
+        ConsistentHashRing ring = new ConsistentHashRing(PEERS, 128);
+
+        Map<String, Integer> owned = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        int keys = 30_000;
+        for (int i = 0; i < keys; i++) {
+            owned.merge(ring.ownerOf(random.nextLong()), 1, Integer::sum);
+        }
+
+        assertThat(owned).hasSize(PEERS.size());
+        owned.values().forEach(count -> assertThat(count).isBetween(keys / 3 * 8 / 10, keys / 3 * 12 / 10));
+    }
+
+    @Test
+    void when_ownerOf_peerRemoved_OnlyItsKeysMove() {
+        ConsistentHashRing ring = new ConsistentHashRing(PEERS, 128);
+        ConsistentHashRing shrunk = new ConsistentHashRing(PEERS.subList(0, 2), 128);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            String owner = ring.ownerOf(key);
+            if (!owner.equals(PEERS.get(2))) {
+                assertThat(shrunk.ownerOf(key)).isEqualTo(owner);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.spond.forecastservice.service.external.cluster;
+
+import com.spond.forecastservice.config.ClusterProperties;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.metrics.ForecastMetrics;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.MetApiTimeoutException;
+import com.spond.forecastservice.service.external.MetApiUnavailableException;
+import com.spond.forecastservice.service.external.resilience.Deadline;
+import com.spond.forecastservice.service.external.snapshot.WeatherSnapshotCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withException;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class PeerCacheClientTest {
+
+    private static final String SELF = "http://localhost:8081";
+    private static final String PEER = "http://localhost:8082";
+
+    ClusterProperties properties;
+
+    LocationProperties locationProperties;
+
+    MetApiProperties metApiProperties;
+
+    MockRestServiceServer server;
+
+    AtomicLong now;
+
+    PeerCacheClient client;
+
+    //A key owned by the peer and one owned by this replica
+    long peerKey;
+    long ownKey;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ClusterProperties();
+        properties.setEnabled(true);
+        properties.setSelf(SELF);
+        properties.setPeers(List.of(SELF, PEER));
+        properties.setSecret("cluster-secret");
+        properties.setUnreachableBackoff(Duration.ofSeconds(10));
+        locationProperties = new LocationProperties();
+        metApiProperties = new MetApiProperties();
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        now = new AtomicLong(1_000_000);
+        client = newClient(restTemplate);
+
+        ConsistentHashRing ring = new ConsistentHashRing(properties.getPeers(), properties.getVirtualNodes());
+        peerKey = 0;
+        while (!ring.ownerOf(peerKey).equals(PEER)) {
+            peerKey++;
+        }
+        ownKey = 0;
+        while (!ring.ownerOf(ownKey).equals(SELF)) {
+            ownKey++;
+        }
+    }
+
+    @Test
+    void when_fetchFromOwner_ownedByPeer_ReturnsPeerEntry() throws IOException {
+        CachedWeatherData entry = entry();
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andExpect(header(PeerCacheClient.SECRET_HEADER, "cluster-secret"))
+            .andRespond(withSuccess(encode(peerKey, entry), MediaType.APPLICATION_OCTET_STREAM));
+
+        CachedWeatherData response = client.fetchFromOwner(peerKey);
+
+        assertThat(response.expiresAt()).isEqualTo(entry.expiresAt());
+        assertThat(response.lastModified()).isEqualTo(entry.lastModified());
+        assertThat(response.timeseries().value(ForecastField.AIR_TEMPERATURE, 0)).isEqualTo(-3.5f);
+        server.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_ownerOnAnotherGrid_ReturnsNull() throws IOException {
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withSuccess(encode(locationProperties.getGridDecimals() - 1, peerKey, entry()),
+                MediaType.APPLICATION_OCTET_STREAM));
+
+        assertThat(client.fetchFromOwner(peerKey)).isNull();
+        server.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_ownedBySelf_ReturnsNullWithoutRequest() {
+        assertThat(client.fetchFromOwner(ownKey)).isNull();
+        server.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_clusterDisabled_ReturnsNullWithoutRequest() {
+        properties.setEnabled(false);
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer disabledServer = MockRestServiceServer.bindTo(restTemplate).build();
+        PeerCacheClient disabled = newClient(restTemplate);
+
+        assertThat(disabled.fetchFromOwner(peerKey)).isNull();
+        disabledServer.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_peerUnreachable_ReturnsNullAndSkipsPeerUntilBackoffPassed() throws IOException {
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withException(new ConnectException("Connection refused")));
+
+        assertThat(client.fetchFromOwner(peerKey)).isNull();
+        //Skipped without a request while backing off
+        assertThat(client.fetchFromOwner(peerKey)).isNull();
+        server.verify();
+
+        server.reset();
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withSuccess(encode(peerKey, entry()), MediaType.APPLICATION_OCTET_STREAM));
+        assertThat(client.fetchFromOwner(peerKey)).isNotNull();
+        server.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_peerTimesOut_ThrowsMetApiTimeoutException() {
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withException(new SocketTimeoutException("Read timed out")));
+
+        assertThatThrownBy(() -> client.fetchFromOwner(peerKey)).isInstanceOf(MetApiTimeoutException.class);
+    }
+
+    @Test
+    void when_fetchFromOwner_peerCannotCallUpstream_ThrowsMetApiUnavailableException() {
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThatThrownBy(() -> client.fetchFromOwner(peerKey)).isInstanceOf(MetApiUnavailableException.class);
+    }
+
+    @Test
+    void when_fetchFromOwner_peerDoesNotOwnKey_ReturnsNull() {
+        server.expect(requestTo(PEER + "/internal/cache/entries/" + peerKey))
+            .andRespond(withStatus(HttpStatusCode.valueOf(PeerCacheClient.MISDIRECTED_REQUEST)));
+
+        assertThat(client.fetchFromOwner(peerKey)).isNull();
+        server.verify();
+    }
+
+    @Test
+    void when_fetchFromOwner_requestDeadlinePassed_ThrowsMetApiTimeoutExceptionWithoutRequest() {
+        assertThatThrownBy(() -> Deadline.call(Deadline.after(Duration.ZERO), () -> client.fetchFromOwner(peerKey)))
+            .isInstanceOf(MetApiTimeoutException.class);
+        server.verify();
+    }
+
+    @Test
+    void when_isPeer_ComparesClusterSecret() {
+        assertThat(client.isPeer("cluster-secret")).isTrue();
+        assertThat(client.isPeer("guessed")).isFalse();
+        assertThat(client.isPeer(null)).isFalse();
+        assertThat(client.isOwnedBySelf(ownKey)).isTrue();
+        assertThat(client.isOwnedBySelf(peerKey)).isFalse();
+    }
+
+    @Test
+    void when_created_noSecret_Throws() {
+        properties.setSecret(" ");
+
+        assertThatThrownBy(() -> newClient(new RestTemplate())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void when_created_selfNotAPeer_Throws() {
+        properties.setSelf("http://localhost:8089");
+
+        assertThatThrownBy(() -> newClient(new RestTemplate())).isInstanceOf(IllegalStateException.class);
+    }
+
+    private PeerCacheClient newClient(RestTemplate restTemplate) {
+        return new PeerCacheClient(properties, locationProperties, metApiProperties,
+            new ForecastMetrics(new SimpleMeterRegistry()), restTemplate, now::get);
+    }
+
+    private static CachedWeatherData entry() {
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[]{-3.5f};
+        return CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(new long[]{1732870800L}, columns))
+            .expiresAt(Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MILLIS))
+            .lastModified("Fri, 29 Nov 2024 13:34:26 GMT")
+            .build();
+    }
+
+    private byte[] encode(long key, CachedWeatherData entry) throws IOException {
+        return encode(locationProperties.getGridDecimals(), key, entry);
+    }
+
+    private byte[] encode(int gridDecimals, long key, CachedWeatherData entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            WeatherSnapshotCodec.writeFormat(out, gridDecimals, metApiProperties.getFields());
+            WeatherSnapshotCodec.writeEntry(out, key, entry);
+        }
+        return bytes.toByteArray();
+    }
+}
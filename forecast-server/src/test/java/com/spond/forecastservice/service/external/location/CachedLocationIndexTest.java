@@ -0,0 +1,83 @@
+package com.spond.forecastservice.service.external.location;
+
+import com.spond.forecastservice.config.LocationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedLocationIndexTest {
+
+    private LocationGrid locationGrid;
+    private CachedLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        LocationProperties properties = new LocationProperties();
+        locationGrid = new LocationGrid(properties);
+        index = new CachedLocationIndex(locationGrid, properties);
+    }
+
+    @Test
+    void when_toKey_coordinatesWithinSameGridCell_SameKey() {
+        assertThat(locationGrid.toKey(60.05001, 10.87003)).isEqualTo(locationGrid.toKey(60.04999, 10.86998));
+        assertThat(locationGrid.toKey(60.05, 10.87)).isNotEqualTo(locationGrid.toKey(60.0501, 10.87));
+    }
+
+    @Test
+    void when_toKey_negativeCoordinates_RoundTripsAndFormats() {
+        long key = locationGrid.toKey(-33.86786, -151.20732);
+
+        assertThat(locationGrid.latitude(key)).isEqualTo(-33.8679);
+        assertThat(locationGrid.longitude(key)).isEqualTo(-151.2073);
+        assertThat(locationGrid.appendLatitude(new StringBuilder(), key).toString()).isEqualTo("-33.8679");
+        assertThat(locationGrid.appendLongitude(new StringBuilder(), key).toString()).isEqualTo("-151.2073");
+        assertThat(locationGrid.appendLatitude(new StringBuilder(), locationGrid.toKey(0.05, 0)).toString())
+            .isEqualTo("0.0500");
+    }
+
+    @Test
+    void when_findNearest_keyWithinRadius_ReturnsClosestKey() {
+        long near = locationGrid.toKey(60.0510, 10.8700);
+        long nearer = locationGrid.toKey(60.0502, 10.8701);
+        index.add(near);
+        index.add(nearer);
+
+        assertThat(index.findNearest(60.05, 10.87, key -> true)).isEqualTo(nearer);
+    }
+
+    @Test
+    void when_findNearest_closestKeyRejected_ReturnsNextClosest() {
+        long near = locationGrid.toKey(60.0510, 10.8700);
+        long nearer = locationGrid.toKey(60.0502, 10.8701);
+        index.add(near);
+        index.add(nearer);
+
+        assertThat(index.findNearest(60.05, 10.87, key -> key != nearer)).isEqualTo(near);
+    }
+
+    @Test
+    void when_findNearest_keyOutsideRadius_ReturnsNull() {
+        index.add(locationGrid.toKey(60.06, 10.87));
+
+        assertThat(index.findNearest(60.05, 10.87, key -> true)).isNull();
+    }
+
+    @Test
+    void when_findNearest_keyInNeighbouringLongitudeCellAtHighLatitude_ReturnsKey() {
+        //At 70 degrees north 400m east covers more than two longitude cells of the index
+        long key = locationGrid.toKey(70.0, 20.0105);
+        index.add(key);
+
+        assertThat(index.findNearest(70.0, 20.0, candidate -> true)).isEqualTo(key);
+    }
+
+    @Test
+    void when_remove_keyRemoved_NotFound() {
+        long key = locationGrid.toKey(60.0502, 10.8701);
+        index.add(key);
+        index.remove(key);
+
+        assertThat(index.findNearest(60.05, 10.87, candidate -> true)).isNull();
+    }
+}
@@ -0,0 +1,71 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimiterTest {
+
+    private AimdConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        MetApiProperties properties = new MetApiProperties();
+        properties.getConcurrencyLimit().setInitialLimit(4);
+        properties.getConcurrencyLimit().setMinLimit(2);
+        properties.getConcurrencyLimit().setMaxLimit(5);
+        properties.getConcurrencyLimit().setBackoffRatio(0.5);
+        properties.getConcurrencyLimit().setLatencyThreshold(Duration.ofSeconds(1));
+        limiter = new AimdConcurrencyLimiter(properties);
+    }
+
+    @Test
+    void when_tryAcquire_limitReached_Rejected() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.onIgnored();
+
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void when_onDropped_LimitHalvedDownToMinimum() {
+        limiter.tryAcquire();
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.tryAcquire();
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void when_onSuccess_fastCalls_LimitGrowsByOnePerLimitCallsUpToMaximum() {
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(Duration.ofMillis(100).toNanos());
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(Duration.ofMillis(100).toNanos());
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void when_onSuccess_slowCall_LimitDecreased() {
+        limiter.tryAcquire();
+        limiter.onSuccess(Duration.ofSeconds(2).toNanos());
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        MetApiProperties properties = new MetApiProperties();
+        properties.getCircuitBreaker().setSlidingWindowSize(10);
+        properties.getCircuitBreaker().setMinimumCalls(4);
+        properties.getCircuitBreaker().setFailureRateThreshold(0.5);
+        properties.getCircuitBreaker().setOpenDuration(Duration.ofSeconds(30));
+        properties.getCircuitBreaker().setHalfOpenCalls(2);
+        now = new AtomicLong(1_000_000);
+        circuitBreaker = new CircuitBreaker(properties, now::get);
+    }
+
+    @Test
+    void when_failureRateBelowThreshold_StaysClosed() {
+        call(false);
+        call(false);
+        call(true);
+        call(false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void when_failureRateReachesThreshold_OpensAndRejectsCalls() {
+        call(false);
+        call(true);
+        call(false);
+        call(true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void when_openDurationPassed_LetsTrialCallsThroughAndClosesOnSuccess() {
+        open();
+        now.addAndGet(30_000);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void when_trialCallFails_OpensAgain() {
+        open();
+        now.addAndGet(30_000);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void when_failureRateReachesThresholdWithinSlidingWindow_Opens() {
+        //3 of 10, then the two oldest successes leave the window as two failures come in: 5 of 10
+        for (boolean failure : new boolean[]{false, false, true, false, false, true, false, false, true, false, true}) {
+            call(failure);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void call(boolean failure) {
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        if (failure) {
+            circuitBreaker.onFailure();
+        }
+        else {
+            circuitBreaker.onSuccess();
+        }
+    }
+}
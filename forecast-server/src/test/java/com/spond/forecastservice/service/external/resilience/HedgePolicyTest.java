@@ -0,0 +1,79 @@
+package com.spond.forecastservice.service.external.resilience;
+
+import com.spond.forecastservice.config.MetApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgePolicyTest {
+
+    MetApiProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MetApiProperties();
+        properties.getHedging().setSampleSize(100);
+        properties.getHedging().setMinSamples(20);
+        properties.getHedging().setMinDelay(Duration.ofMillis(1));
+    }
+
+    @Test
+    void when_onResponse_enoughSamples_DelayIsPercentileOfRecentLatencies() {
+        HedgePolicy policy = new HedgePolicy(properties);
+        for (int i = 1; i <= 19; i++) {
+            policy.onResponse(Duration.ofMillis(i).toNanos());
+        }
+        assertThat(policy.hedgeDelayNanos()).isEqualTo(-1);
+
+        for (int i = 20; i <= 100; i++) {
+            policy.onResponse(Duration.ofMillis(i).toNanos());
+        }
+
+        assertThat(policy.hedgeDelayNanos()).isEqualTo(Duration.ofMillis(95).toNanos());
+    }
+
+    @Test
+    void when_onResponse_fastCalls_DelayNotBelowMinimum() {
+        properties.getHedging().setMinDelay(Duration.ofMillis(50));
+        HedgePolicy policy = new HedgePolicy(properties);
+
+        for (int i = 0; i < 100; i++) {
+            policy.onResponse(Duration.ofMillis(2).toNanos());
+        }
+
+        assertThat(policy.hedgeDelayNanos()).isEqualTo(Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    void when_tryAcquireHedge_budgetUsedUp_DeniedUntilEnoughCallsAnswered() {
+        properties.getHedging().setBudgetBurst(2);
+        properties.getHedging().setBudgetRatio(0.1);
+        HedgePolicy policy = new HedgePolicy(properties);
+
+        assertThat(policy.tryAcquireHedge()).isTrue();
+        assertThat(policy.tryAcquireHedge()).isTrue();
+        assertThat(policy.tryAcquireHedge()).isFalse();
+
+        for (int i = 0; i < 9; i++) {
+            policy.onResponse(Duration.ofMillis(10).toNanos());
+        }
+        assertThat(policy.tryAcquireHedge()).isFalse();
+        policy.onResponse(Duration.ofMillis(10).toNanos());
+        assertThat(policy.tryAcquireHedge()).isTrue();
+    }
+
+    @Test
+    void when_hedgeDelayNanos_disabled_NeverHedged() {
+        properties.getHedging().setEnabled(false);
+        HedgePolicy policy = new HedgePolicy(properties);
+
+        for (int i = 0; i < 100; i++) {
+            policy.onResponse(Duration.ofMillis(10).toNanos());
+        }
+
+        assertThat(policy.hedgeDelayNanos()).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,174 @@
+package com.spond.forecastservice.service.external.snapshot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spond.forecastservice.config.LocationProperties;
+import com.spond.forecastservice.config.MetApiProperties;
+import com.spond.forecastservice.config.WeatherCacheProperties;
+import com.spond.forecastservice.domain.ForecastField;
+import com.spond.forecastservice.domain.ForecastTimeseries;
+import com.spond.forecastservice.service.external.CachedWeatherData;
+import com.spond.forecastservice.service.external.location.CachedLocationIndex;
+import com.spond.forecastservice.service.external.location.LocationGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeatherCacheSnapshotServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private WeatherCacheProperties properties;
+    private LocationProperties locationProperties;
+    private MetApiProperties metApiProperties;
+    private LocationGrid locationGrid;
+    private CachedLocationIndex index;
+    private Cache<Long, CachedWeatherData> cache;
+    private WeatherCacheSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherCacheProperties();
+        properties.getSnapshot().setPath(tempDir.resolve("weather-cache.snapshot"));
+        locationProperties = new LocationProperties();
+        metApiProperties = new MetApiProperties();
+        locationGrid = new LocationGrid(locationProperties);
+        index = new CachedLocationIndex(locationGrid, locationProperties);
+        cache = Caffeine.newBuilder().build();
+        snapshotService = new WeatherCacheSnapshotService(cache, index, properties, locationProperties,
+            metApiProperties);
+    }
+
+    @Test
+    void when_load_snapshotWritten_RestoresEntriesAndIndex() {
+        long key = locationGrid.toKey(60.05, 10.87);
+        float[][] columns = new float[ForecastField.values().length][];
+        columns[ForecastField.AIR_TEMPERATURE.ordinal()] = new float[]{-2.0f, Float.NaN};
+        CachedWeatherData data = CachedWeatherData.builder()
+            .timeseries(new ForecastTimeseries(new long[]{1_700_000_000L, 1_700_003_600L}, columns))
+            .expiresAt(Instant.now().truncatedTo(ChronoUnit.MILLIS))
+            .lastModified("Tue, 14 Jan 2025 10:00:00 GMT")
+            .build();
+        cache.put(key, data);
+        snapshotService.write();
+
+        Cache<Long, CachedWeatherData> restartedCache = Caffeine.newBuilder().build();
+        CachedLocationIndex restartedIndex = new CachedLocationIndex(locationGrid, new LocationProperties());
+        new WeatherCacheSnapshotService(restartedCache, restartedIndex, properties, locationProperties,
+            metApiProperties).load();
+
+        CachedWeatherData restored = restartedCache.getIfPresent(key);
+        assertThat(restored).isNotNull();
+        assertThat(restored.expiresAt()).isEqualTo(data.expiresAt());
+        assertThat(restored.lastModified()).isEqualTo(data.lastModified());
+        assertThat(restored.timeseries().size()).isEqualTo(2);
+        assertThat(restored.timeseries().epochSecond(1)).isEqualTo(1_700_003_600L);
+        assertThat(restored.timeseries().valueOrNull(ForecastField.AIR_TEMPERATURE, 0)).isEqualTo(-2.0);
+        assertThat(restored.timeseries().valueOrNull(ForecastField.AIR_TEMPERATURE, 1)).isNull();
+        assertThat(restored.timeseries().hasField(ForecastField.WIND_SPEED)).isFalse();
+        assertThat(restartedIndex.findNearest(60.05, 10.87, candidate -> true)).isEqualTo(key);
+    }
+
+    @Test
+    void when_load_noPath_Throws() {
+        properties.getSnapshot().setPath(null);
+
+        assertThatThrownBy(() -> snapshotService.load()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void when_load_snapshotOfAnotherGrid_Ignored() {
+        cache.put(locationGrid.toKey(5.9914, 10.75), CachedWeatherData.builder()
+            .timeseries(ForecastTimeseries.empty())
+            .expiresAt(Instant.now())
+            .build());
+        snapshotService.write();
+
+        LocationProperties coarserGrid = new LocationProperties();
+        coarserGrid.setGridDecimals(3);
+        Cache<Long, CachedWeatherData> restartedCache = Caffeine.newBuilder().build();
+        CachedLocationIndex restartedIndex = new CachedLocationIndex(new LocationGrid(coarserGrid), coarserGrid);
+        new WeatherCacheSnapshotService(restartedCache, restartedIndex, properties, coarserGrid, metApiProperties).load();
+
+        assertThat(restartedCache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void when_load_snapshotOfOtherFields_Ignored() {
+        cache.put(1L, CachedWeatherData.builder().timeseries(ForecastTimeseries.empty()).expiresAt(Instant.now()).build());
+        snapshotService.write();
+
+        MetApiProperties otherFields = new MetApiProperties();
+        otherFields.setFields(EnumSet.of(ForecastField.AIR_TEMPERATURE));
+        Cache<Long, CachedWeatherData> restartedCache = Caffeine.newBuilder().build();
+        new WeatherCacheSnapshotService(restartedCache, index, properties, locationProperties, otherFields).load();
+
+        assertThat(restartedCache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void when_load_snapshotOlderThanMaxAge_Ignored() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(properties.getSnapshot().getPath()))) {
+            out.writeInt(WeatherCacheSnapshotService.MAGIC);
+            out.writeInt(WeatherCacheSnapshotService.VERSION);
+            out.writeLong(Instant.now().minus(Duration.ofHours(2)).toEpochMilli());
+            out.writeInt(1);
+            WeatherSnapshotCodec.writeFormat(out, locationProperties.getGridDecimals(), metApiProperties.getFields());
+            WeatherSnapshotCodec.writeEntry(out, 1L, CachedWeatherData.builder()
+                .timeseries(ForecastTimeseries.empty())
+                .expiresAt(Instant.now())
+                .build());
+        }
+
+        snapshotService.load();
+
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void when_load_truncatedSnapshot_IgnoresTruncatedEntry() throws IOException {
+        cache.put(1L, CachedWeatherData.builder().timeseries(ForecastTimeseries.empty()).expiresAt(Instant.now()).build());
+        snapshotService.write();
+        Path path = properties.getSnapshot().getPath();
+        Files.write(path, Arrays.copyOf(Files.readAllBytes(path), (int) Files.size(path) - 1));
+        cache.invalidateAll();
+
+        snapshotService.load();
+
+        assertThat(cache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void when_load_corruptPointCount_IgnoresEntryWithoutAllocatingIt() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(properties.getSnapshot().getPath()))) {
+            out.writeInt(WeatherCacheSnapshotService.MAGIC);
+            out.writeInt(WeatherCacheSnapshotService.VERSION);
+            out.writeLong(Instant.now().toEpochMilli());
+            out.writeInt(1);
+            WeatherSnapshotCodec.writeFormat(out, locationProperties.getGridDecimals(), metApiProperties.getFields());
+            out.writeLong(1L);
+            out.writeLong(Instant.now().toEpochMilli());
+            out.writeInt(-1);
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeInt(1);
+        }
+
+        snapshotService.load();
+
+        assertThat(cache.estimatedSize()).isZero();
+    }
+}